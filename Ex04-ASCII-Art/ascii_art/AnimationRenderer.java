@@ -0,0 +1,160 @@
+package ascii_art;
+
+import ascii_art.img_to_char.BrightnessImgCharMatcher;
+import ascii_output.AnimationOutput;
+import image.FrameSequence;
+import image.Image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * AnimationRenderer class- converts the frames of an animation to ASCII frames.
+ * The work is a pipeline of three stages, each on its own thread: a decoder reads the frames, a
+ * converter chooses their chars, and the calling thread writes them to the output. The stages are
+ * connected by bounded queues, so a fast stage waits for a slow one instead of piling up frames, and at
+ * most about 2 * queueCapacity frames are in memory at once. The end of the frames (or a failure) is
+ * passed down the pipeline as a marker after the last frame.
+ */
+public class AnimationRenderer {
+    /**
+     * string constants and magic numbers.
+     */
+    private static final String FONT = "Courier New";
+    private static final int MIN_PIXELS_PER_CHAR = 2;
+    /**
+     * the markers put on the queues after the last frame.
+     */
+    private static final Image NO_MORE_IMAGES =
+            Image.fromBufferedImage(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB));
+    private static final char[][] NO_MORE_FRAMES = new char[0][];
+
+    /**
+     * private final fields- charSet, charsInRow, fps, queueCapacity.
+     */
+    private final Character[] charSet;
+    private final int charsInRow;
+    private final double fps;
+    private final int queueCapacity;
+
+    /**
+     * constructor for AnimationRenderer.
+     *
+     * @param charSet       the chars to render with.
+     * @param charsInRow    the requested number of chars in a row, clamped to the first frame like the
+     *                      Shell does.
+     * @param fps           the frame rate of the output.
+     * @param queueCapacity the number of frames each queue between two stages holds.
+     */
+    public AnimationRenderer(Character[] charSet, int charsInRow, double fps, int queueCapacity) {
+        if (charSet.length == 0 || charsInRow < 1 || !(fps > 0) || queueCapacity < 1) {
+            throw new IllegalArgumentException("empty char set, or non positive width, fps or capacity");
+        }
+        this.charSet = charSet;
+        this.charsInRow = charsInRow;
+        this.fps = fps;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * converts all the frames and writes them to output, from the first to the last.
+     *
+     * @param frames the frames to convert. they aren't closed.
+     * @param output gets begin, then the frames, then end.
+     * @return the number of frames written.
+     * @throws IOException          if a frame couldn't be decoded. Any other failure of a stage, including
+     *                              an Error, ends the pipeline too and is rethrown here.
+     * @throws InterruptedException if interrupted while waiting for a frame.
+     */
+    public int run(FrameSequence frames, AnimationOutput output) throws IOException, InterruptedException {
+        BlockingQueue<Image> images = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<char[][]> charFrames = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread decoder = new Thread(() -> decode(frames, images, failure), "ascii-art-decoder");
+        Thread converter = new Thread(() -> convert(images, charFrames, failure), "ascii-art-converter");
+        decoder.start();
+        converter.start();
+        int written = 0;
+        try {
+            for (char[][] frame = charFrames.take(); frame != NO_MORE_FRAMES; frame = charFrames.take()) {
+                if (written == 0) {
+                    output.begin(frame[0].length, frame.length, fps);
+                }
+                output.writeFrame(frame);
+                written++;
+            }
+            if (written > 0) {
+                output.end();
+            }
+        } finally {
+            decoder.interrupt();
+            converter.interrupt();
+            decoder.join();
+            converter.join();
+        }
+        Throwable cause = failure.get();
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        if (cause != null) {
+            throw new IllegalStateException(cause);
+        }
+        return written;
+    }
+
+    /**
+     * the decoder stage: reads the frames into images, then puts the marker.
+     */
+    private static void decode(FrameSequence frames, BlockingQueue<Image> images,
+                               AtomicReference<Throwable> failure) {
+        try {
+            try {
+                for (Image img = frames.next(); img != null; img = frames.next()) {
+                    images.put(img);
+                }
+            } catch (IOException | RuntimeException | Error e) {
+                //an Error too (say, out of memory on a large frame), or the next stage would wait forever
+                failure.compareAndSet(null, e);
+            }
+            images.put(NO_MORE_IMAGES);
+        } catch (InterruptedException e) {
+            //the output stopped, nobody waits for more frames
+        }
+    }
+
+    /**
+     * the converter stage: chooses the chars of each image, then puts the marker. The width is set by the
+     * first frame, later frames of another size are converted to the same number of chars in a row.
+     */
+    private void convert(BlockingQueue<Image> images, BlockingQueue<char[][]> charFrames,
+                         AtomicReference<Throwable> failure) {
+        try {
+            try {
+                int frameCharsInRow = -1;
+                for (Image img = images.take(); img != NO_MORE_IMAGES; img = images.take()) {
+                    if (frameCharsInRow < 0) {
+                        int minCharsInRow = Math.max(1, img.getWidth() / img.getHeight());
+                        int maxCharsInRow = img.getWidth() / MIN_PIXELS_PER_CHAR;
+                        frameCharsInRow = Math.max(Math.min(charsInRow, maxCharsInRow), minCharsInRow);
+                    }
+                    BrightnessImgCharMatcher matcher = new BrightnessImgCharMatcher(img, FONT);
+                    //the pipeline already runs the stages in parallel
+                    matcher.setParallelThreshold(Integer.MAX_VALUE);
+                    charFrames.put(matcher.chooseChars(Math.min(frameCharsInRow, img.getWidth()), charSet));
+                }
+            } catch (RuntimeException | Error e) {
+                failure.compareAndSet(null, e);
+            }
+            charFrames.put(NO_MORE_FRAMES);
+        } catch (InterruptedException e) {
+            //the output stopped, nobody waits for more frames
+        }
+    }
+}
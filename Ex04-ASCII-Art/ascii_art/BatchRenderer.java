@@ -0,0 +1,238 @@
+package ascii_art;
+
+import ascii_art.img_to_char.BrightnessImgCharMatcher;
+import ascii_output.AsciiOutput;
+import ascii_output.HtmlAsciiOutput;
+import image.Image;
+import image.LuminancePlane;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * BatchRenderer class- converts many images to HTML ascii art without user interaction.
+ * The images are converted concurrently on a fixed pool of workers. A new image is decoded only after
+ * one of the images in flight was written, so at most numWorkers decoded images are in memory at once.
+ */
+public class BatchRenderer {
+    /**
+     * string constants and magic numbers.
+     */
+    private static final String FONT = "Courier New";
+    private static final String OUTPUT_SUFFIX = ".html";
+    private static final String ALL_CHARS = "all";
+    private static final char FIRST_ASCII = ' ';
+    private static final char LAST_ASCII = '~';
+    private static final char RANGE_SYMBOL = '-';
+    private static final int MIN_PIXELS_PER_CHAR = 2;
+    private static final double NANOS_IN_MILLI = 1e6;
+    private static final double NANOS_IN_SECOND = 1e9;
+    private static final double PIXELS_IN_MEGAPIXEL = 1e6;
+
+    /**
+     * private final fields- charSet, charsInRow, outputDir, numWorkers.
+     */
+    private final Character[] charSet;
+    private final int charsInRow;
+    private final Path outputDir;
+    private final int numWorkers;
+
+    /**
+     * the outcome of converting a single image: its number of pixels as decoded (without the padding to
+     * powers of 2), the time it took, and failure, which is null if the image was converted, and
+     * otherwise says why it wasn't.
+     */
+    private static class Result {
+        private final Path input;
+        private final long pixels;
+        private final long nanos;
+        private final String failure;
+
+        private Result(Path input, long pixels, long nanos, String failure) {
+            this.input = input;
+            this.pixels = pixels;
+            this.nanos = nanos;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * constructor for BatchRenderer.
+     *
+     * @param charSet    the chars to render with.
+     * @param charsInRow the requested number of chars in a row, clamped per image like the Shell does.
+     * @param outputDir  the directory the HTML files are written to.
+     * @param numWorkers the number of images converted concurrently.
+     */
+    public BatchRenderer(Character[] charSet, int charsInRow, Path outputDir, int numWorkers) {
+        if (charSet.length == 0 || charsInRow < 1 || numWorkers < 1) {
+            throw new IllegalArgumentException("empty char set, or non positive width or number of workers");
+        }
+        this.charSet = charSet;
+        this.charsInRow = charsInRow;
+        this.outputDir = outputDir;
+        this.numWorkers = numWorkers;
+    }
+
+    /**
+     * parses a char set description: "all" for all printable ascii chars, otherwise the chars of the
+     * string, where "a-z" stands for a whole range.
+     *
+     * @param description the char set description.
+     * @return the chars it describes, without duplicates.
+     */
+    public static Character[] parseCharSet(String description) {
+        TreeSet<Character> chars = new TreeSet<>();
+        if (description.equals(ALL_CHARS)) {
+            for (char c = FIRST_ASCII; c <= LAST_ASCII; c++) {
+                chars.add(c);
+            }
+            return chars.toArray(new Character[0]);
+        }
+        for (int i = 0; i < description.length(); i++) {
+            char c = description.charAt(i);
+            if (i + 2 < description.length() && description.charAt(i + 1) == RANGE_SYMBOL) {
+                char last = description.charAt(i + 2);
+                for (char r = (char) Math.min(c, last); r <= Math.max(c, last); r++) {
+                    chars.add(r);
+                }
+                i += 2;
+            } else {
+                chars.add(c);
+            }
+        }
+        return chars.toArray(new Character[0]);
+    }
+
+    /**
+     * lists the images to convert: all the files of a directory, or the files matching a glob such as
+     * "photos/*.jpg".
+     *
+     * @param pathOrGlob a directory or a glob.
+     * @return the matching files, sorted.
+     * @throws IOException if the directory couldn't be listed.
+     */
+    public static List<Path> listImages(String pathOrGlob) throws IOException {
+        Path path = Paths.get(pathOrGlob);
+        Path dir = path;
+        String glob = "*";
+        if (!Files.isDirectory(path)) {
+            dir = path.toAbsolutePath().getParent();
+            glob = path.getFileName().toString();
+        }
+        TreeSet<Path> files = new TreeSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, glob)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * converts all the given images and prints the throughput of each one and of the whole batch.
+     * An image whose conversion throws is reported as failed, with its cause, and doesn't stop the batch.
+     *
+     * @param inputs the images to convert.
+     * @throws InterruptedException if interrupted while waiting for the workers.
+     * @throws IOException          if the output directory couldn't be created.
+     */
+    public void run(List<Path> inputs) throws InterruptedException, IOException {
+        Files.createDirectories(outputDir);
+        ExecutorService workers = Executors.newFixedThreadPool(numWorkers);
+        Semaphore inFlight = new Semaphore(numWorkers);
+        List<Future<Result>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            for (Path input : inputs) {
+                //back-pressure: don't queue (and later decode) more images than there are workers
+                inFlight.acquire();
+                futures.add(workers.submit(() -> {
+                    try {
+                        return convert(input);
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+            List<Result> results = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    results.add(new Result(inputs.get(i), 0, 0, "failed: " + e.getCause()));
+                }
+            }
+            report(results, System.nanoTime() - start);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * converts a single image to an HTML file in outputDir.
+     *
+     * @param input the image file.
+     * @return the outcome of the conversion.
+     */
+    private Result convert(Path input) {
+        long start = System.nanoTime();
+        Image img = Image.fromFile(input.toString());
+        if (img == null) {
+            return new Result(input, 0, System.nanoTime() - start, "failed to open");
+        }
+        int minCharsInRow = Math.max(1, img.getWidth() / img.getHeight());
+        int maxCharsInRow = img.getWidth() / MIN_PIXELS_PER_CHAR;
+        int imgCharsInRow = Math.max(Math.min(charsInRow, maxCharsInRow), minCharsInRow);
+
+        BrightnessImgCharMatcher matcher = new BrightnessImgCharMatcher(img, FONT);
+        //the batch is already parallel across images
+        matcher.setParallelThreshold(Integer.MAX_VALUE);
+        char[][] chars = matcher.chooseChars(imgCharsInRow, charSet);
+
+        AsciiOutput output = new HtmlAsciiOutput(
+                outputDir.resolve(input.getFileName() + OUTPUT_SUFFIX).toString(), FONT);
+        output.output(chars);
+        //the plane was already built for the matcher, and knows the size of the image before padding
+        LuminancePlane plane = img.getLuminancePlane();
+        return new Result(input, (long) plane.getContentWidth() * plane.getContentHeight(),
+                System.nanoTime() - start, null);
+    }
+
+    /**
+     * prints the time and throughput of each image and of the whole batch.
+     *
+     * @param results   the outcome of each image, in input order.
+     * @param wallNanos the time the whole batch took.
+     */
+    private static void report(List<Result> results, long wallNanos) {
+        long totalPixels = 0;
+        int converted = 0;
+        for (Result result : results) {
+            if (result.failure != null) {
+                System.out.printf("%s: %s%n", result.input, result.failure);
+                continue;
+            }
+            converted++;
+            totalPixels += result.pixels;
+            System.out.printf("%s: %.1f ms, %.2f MP/s%n", result.input, result.nanos / NANOS_IN_MILLI,
+                    result.pixels / PIXELS_IN_MEGAPIXEL / (result.nanos / NANOS_IN_SECOND));
+        }
+        double seconds = wallNanos / NANOS_IN_SECOND;
+        System.out.printf("%d/%d images in %.2f s: %.2f images/s, %.2f MP/s%n", converted, results.size(),
+                seconds, converted / seconds, totalPixels / PIXELS_IN_MEGAPIXEL / seconds);
+    }
+}
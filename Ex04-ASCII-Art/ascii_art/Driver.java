@@ -2,15 +2,59 @@ package ascii_art;
 
 import ascii_art.img_to_char.BrightnessImgCharMatcher;
 import ascii_art.img_to_char.CharRenderer;
+import ascii_output.AnimationOutput;
+import ascii_output.AsciiOutput;
+import ascii_output.ConsoleAnimationOutput;
+import ascii_output.HtmlAnimationOutput;
+import ascii_output.HtmlAsciiOutput;
+import image.FrameSequence;
 import image.Image;
+import image.StreamingImage;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Logger;
 
 /**
  * runs the program.
+ * With a single image path, opens the interactive Shell on it. With --batch, converts a whole
+ * directory (or glob) of images to HTML files without interaction. With --stream, converts a single
+ * image, too large to be held in memory, to the console band by band. With --animate, plays an
+ * animated GIF (or a sequence of images) as ASCII art in the console, or saves it as an HTML animation.
  */
 public class Driver {
+    private static final String BATCH_FLAG = "--batch";
+    private static final String STREAM_FLAG = "--stream";
+    private static final String ANIMATE_FLAG = "--animate";
+    private static final int MIN_ANIMATE_ARGS = 4;
+    private static final int MAX_ANIMATE_ARGS = 6;
+    private static final double DEFAULT_FPS = 10;
+    private static final int ANIMATION_QUEUE_CAPACITY = 4;
+    private static final String GLOB_CHARS = "*?[{";
+    private static final String FONT = "Courier New";
+    private static final int MIN_STREAM_ARGS = 4;
+    private static final int MAX_STREAM_ARGS = 5;
+    private static final String DEFAULT_BATCH_OUTPUT_DIR = "ascii_out";
+    private static final int MIN_BATCH_ARGS = 4;
+    private static final int MAX_BATCH_ARGS = 6;
+
     public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals(BATCH_FLAG)) {
+            runBatch(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals(STREAM_FLAG)) {
+            runStream(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals(ANIMATE_FLAG)) {
+            runAnimate(args);
+            return;
+        }
         if (args.length != 1) {
             System.err.println("USAGE: java asciiArt ");
             return;
@@ -22,6 +66,90 @@ public class Driver {
         }
         new Shell(img).run();
     }
-}
 
+    /**
+     * runs the batch mode.
+     * args: --batch dirOrGlob chars width [outputDir] [numWorkers]
+     *
+     * @param args the command line arguments.
+     */
+    private static void runBatch(String[] args) throws Exception {
+        if (args.length < MIN_BATCH_ARGS || args.length > MAX_BATCH_ARGS) {
+            System.err.println("USAGE: java asciiArt --batch dirOrGlob chars width [outputDir] [numWorkers]");
+            return;
+        }
+        List<Path> inputs = BatchRenderer.listImages(args[1]);
+        Character[] charSet = BatchRenderer.parseCharSet(args[2]);
+        int charsInRow = Integer.parseInt(args[3]);
+        Path outputDir = Paths.get(args.length > 4 ? args[4] : DEFAULT_BATCH_OUTPUT_DIR);
+        int numWorkers = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+        new BatchRenderer(charSet, charsInRow, outputDir, numWorkers).run(inputs);
+    }
 
+    /**
+     * runs the streaming mode: the image is decoded one band at a time and each row of chars is written,
+     * to the console or to an HTML file, as soon as its band is done.
+     * args: --stream imageFile chars width [htmlFile]
+     *
+     * @param args the command line arguments.
+     */
+    private static void runStream(String[] args) throws Exception {
+        if (args.length < MIN_STREAM_ARGS || args.length > MAX_STREAM_ARGS) {
+            System.err.println("USAGE: java asciiArt --stream imageFile chars width [htmlFile]");
+            return;
+        }
+        try (StreamingImage img = Image.streamFromFile(args[1])) {
+            if (img == null) {
+                Logger.getGlobal().severe("Failed to open image file " + args[1]);
+                return;
+            }
+            int charsInRow = Math.min(Integer.parseInt(args[3]), img.getWidth());
+            AsciiOutput output = args.length > 4 ? new HtmlAsciiOutput(args[4], FONT) : Shell.newConsoleOutput();
+            new BrightnessImgCharMatcher(img, FONT).chooseChars(charsInRow, BatchRenderer.parseCharSet(args[2]), output);
+        }
+    }
+
+    /**
+     * runs the animation mode. The frames are the frames of a GIF (or the single frame of another image),
+     * or, for a directory or a glob, the images it matches in name order.
+     * args: --animate gifOrDirOrGlob chars width [fps] [htmlFile]
+     *
+     * @param args the command line arguments.
+     */
+    private static void runAnimate(String[] args) throws Exception {
+        if (args.length < MIN_ANIMATE_ARGS || args.length > MAX_ANIMATE_ARGS) {
+            System.err.println("USAGE: java asciiArt --animate gifOrDirOrGlob chars width [fps] [htmlFile]");
+            return;
+        }
+        double fps = args.length > 4 ? Double.parseDouble(args[4]) : DEFAULT_FPS;
+        AnimationOutput output = args.length > 5 ? new HtmlAnimationOutput(args[5], FONT) :
+                new ConsoleAnimationOutput();
+        try (FrameSequence frames = openFrames(args[1])) {
+            if (frames == null) {
+                Logger.getGlobal().severe("Failed to open image file " + args[1]);
+                return;
+            }
+            new AnimationRenderer(BatchRenderer.parseCharSet(args[2]), Integer.parseInt(args[3]), fps,
+                    ANIMATION_QUEUE_CAPACITY).run(frames, output);
+        }
+    }
+
+    /**
+     * opens the frames of an animation: the images matched by a directory or a glob, in name order, or
+     * the frames of a single file.
+     *
+     * @param pathOrGlob a GIF (or another image), a directory or a glob.
+     * @return the frames, or null if the file couldn't be opened.
+     */
+    private static FrameSequence openFrames(String pathOrGlob) throws IOException {
+        boolean isGlob = pathOrGlob.chars().anyMatch(c -> GLOB_CHARS.indexOf(c) >= 0);
+        if (!isGlob && !Files.isDirectory(Paths.get(pathOrGlob))) {
+            return Image.framesFromFile(pathOrGlob);
+        }
+        List<String> files = new ArrayList<>();
+        for (Path file : BatchRenderer.listImages(pathOrGlob)) {
+            files.add(file.toString());
+        }
+        return Image.framesFromFiles(files);
+    }
+}
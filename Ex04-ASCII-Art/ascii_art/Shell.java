@@ -1,6 +1,9 @@
 package ascii_art;
 
 import ascii_art.img_to_char.BrightnessImgCharMatcher;
+import ascii_art.img_to_char.DitherMode;
+import ascii_art.img_to_char.ShapeImgCharMatcher;
+import ascii_output.AsciiOutput;
 import ascii_output.ConsoleAsciiOutput;
 import ascii_output.HtmlAsciiOutput;
 import image.Image;
@@ -29,6 +32,20 @@ public class Shell {
     private static final String SET_WIDTH_MSG = "Width set to ";
     private static final String CONSOLE_COMMAND = "console";
     private static final String RENDER_COMMAND = "render";
+    private static final String COLOR_COMMAND = "color";
+    private static final String WIDTH_COMMAND = "width ";
+    private static final String ASPECT_COMMAND = "aspect ";
+    private static final String SET_ASPECT_MSG = "Aspect ratio set to ";
+    private static final String COLOR_ON_MSG = "Color mode on";
+    private static final String COLOR_OFF_MSG = "Color mode off";
+    private static final String DITHER_COMMAND = "dither ";
+    private static final String DITHER_NONE = "none";
+    private static final String DITHER_ORDERED = "ordered";
+    private static final String DITHER_FLOYD_STEINBERG = "fs";
+    private static final String SET_DITHER_MSG = "Dither mode set to ";
+    private static final String SHAPE_COMMAND = "shape";
+    private static final String SHAPE_ON_MSG = "Shape matching on";
+    private static final String SHAPE_OFF_MSG = "Shape matching off";
 
     /**
      * string constants: error messages.
@@ -67,7 +84,10 @@ public class Shell {
     private static final HashSet<Character> ALL_ASCII = new HashSet<>();
     private final HashSet<Character> charSet;
     private final BrightnessImgCharMatcher brightnessImgCharMatcher;
+    private final ShapeImgCharMatcher shapeImgCharMatcher;
     private boolean printToConsole;
+    private boolean colored;
+    private boolean shaped;
     /**
      * resolution fields.
      */
@@ -101,12 +121,17 @@ public class Shell {
         initialize_all_ascii();
 
         printToConsole = false;
+        colored = false;
+        shaped = false;
 
         minCharsInRow = Math.max(1, img.getWidth() / img.getHeight());
         maxCharsInRow = img.getWidth() / MIN_PIXELS_PER_CHAR;
         charsInRow = Math.max(Math.min(INITIAL_CHARS_IN_ROW, maxCharsInRow), minCharsInRow);
 
         brightnessImgCharMatcher = new BrightnessImgCharMatcher(img, FONT);
+        //a render after adding or removing a few chars only revisits the affected sub images
+        brightnessImgCharMatcher.setIncremental(true);
+        shapeImgCharMatcher = new ShapeImgCharMatcher(img, FONT);
     }
 
     /**
@@ -136,8 +161,20 @@ public class Shell {
                 }
             } else if (userStr.equals(RES_UP_COMMAND) || userStr.equals(RES_DOWN_COMMAND)) {
                 res_up_down(userStr);
+            } else if (userStr.startsWith(WIDTH_COMMAND)) {
+                set_width(userStr.substring(WIDTH_COMMAND.length()));
+            } else if (userStr.startsWith(ASPECT_COMMAND)) {
+                set_aspect(userStr.substring(ASPECT_COMMAND.length()));
+            } else if (userStr.startsWith(DITHER_COMMAND)) {
+                set_dither(userStr.substring(DITHER_COMMAND.length()));
             } else if (userStr.equals(CONSOLE_COMMAND)) {
                 printToConsole = true;
+            } else if (userStr.equals(COLOR_COMMAND)) {
+                colored = !colored;
+                System.out.println(colored ? COLOR_ON_MSG : COLOR_OFF_MSG);
+            } else if (userStr.equals(SHAPE_COMMAND)) {
+                shaped = !shaped;
+                System.out.println(shaped ? SHAPE_ON_MSG : SHAPE_OFF_MSG);
             } else if (userStr.equals(RENDER_COMMAND)) {
                 renderOutput();
             } else {
@@ -148,7 +185,9 @@ public class Shell {
 
     /**
      * Renders the output. Is called when the user typed in the RENDER_COMMAND. If console was typed
-     * before, renders to the console, else renders to html file.
+     * before, renders to the console, else renders to html file. In color mode each char gets the
+     * average color of its sub image. In shape mode the chars are matched by their shape (and dithering
+     * doesn't apply).
      */
     private void renderOutput() {
         if (charSet.isEmpty()) {
@@ -158,15 +197,24 @@ public class Shell {
 
         Character[] charArr = convertToArr(charSet);
 
-        char[][] charAsciiArr = brightnessImgCharMatcher.chooseChars(charsInRow, charArr);
+        char[][] charAsciiArr = shaped ? shapeImgCharMatcher.chooseChars(charsInRow, charArr) :
+                brightnessImgCharMatcher.chooseChars(charsInRow, charArr);
 
-        if (printToConsole) {
-            ConsoleAsciiOutput console = new ConsoleAsciiOutput();
-            console.output(charAsciiArr);
+        AsciiOutput output = printToConsole ? newConsoleOutput() : new HtmlAsciiOutput(OUTPUT_HTML_FILE, FONT);
+        if (colored) {
+            output.outputColored(charAsciiArr, brightnessImgCharMatcher.chooseColors(charsInRow));
             return;
         }
-        HtmlAsciiOutput html = new HtmlAsciiOutput(OUTPUT_HTML_FILE, FONT);
-        html.output(charAsciiArr);
+        output.output(charAsciiArr);
+    }
+
+    /**
+     * @return a console output that reports how many bytes it wrote and how long it took.
+     */
+    static ConsoleAsciiOutput newConsoleOutput() {
+        ConsoleAsciiOutput output = new ConsoleAsciiOutput();
+        output.setReportWrites(true);
+        return output;
     }
 
     /**
@@ -207,6 +255,77 @@ public class Shell {
         }
     }
 
+    /**
+     * sets the number of chars in a row to any value within the boundaries- minCharsInRow and
+     * maxCharsInRow. Unlike res up/down, it doesn't have to be a power of 2.
+     *
+     * @param width the requested number of chars in a row, as typed by the user.
+     */
+    private void set_width(String width) {
+        int newCharsInRow;
+        try {
+            newCharsInRow = Integer.parseInt(width.trim());
+        } catch (NumberFormatException e) {
+            System.out.println(ERROR_MSG);
+            return;
+        }
+        if (minCharsInRow <= newCharsInRow && newCharsInRow <= maxCharsInRow) {
+            charsInRow = newCharsInRow;
+            System.out.println(SET_WIDTH_MSG + charsInRow);
+        } else {
+            System.out.println(EXCEEDING_BOUNDARIES_MSG);
+        }
+    }
+
+    /**
+     * sets how the chars are chosen: "none" for the closest char to each sub image, "ordered" for
+     * ordered dithering and "fs" for Floyd-Steinberg error diffusion.
+     *
+     * @param mode the dithering mode, as typed by the user.
+     */
+    private void set_dither(String mode) {
+        DitherMode ditherMode;
+        switch (mode.trim()) {
+            case DITHER_NONE:
+                ditherMode = DitherMode.NONE;
+                break;
+            case DITHER_ORDERED:
+                ditherMode = DitherMode.ORDERED;
+                break;
+            case DITHER_FLOYD_STEINBERG:
+                ditherMode = DitherMode.FLOYD_STEINBERG;
+                break;
+            default:
+                System.out.println(ERROR_MSG);
+                return;
+        }
+        brightnessImgCharMatcher.setDitherMode(ditherMode);
+        System.out.println(SET_DITHER_MSG + mode.trim());
+    }
+
+    /**
+     * sets the height of the part of the image each char stands for, divided by its width. A value
+     * around 2 compensates for chars being higher than they are wide.
+     *
+     * @param aspect the aspect ratio, as typed by the user.
+     */
+    private void set_aspect(String aspect) {
+        double aspectRatio;
+        try {
+            aspectRatio = Double.parseDouble(aspect.trim());
+        } catch (NumberFormatException e) {
+            System.out.println(ERROR_MSG);
+            return;
+        }
+        if (!(aspectRatio > 0) || Double.isInfinite(aspectRatio)) {
+            System.out.println(EXCEEDING_BOUNDARIES_MSG);
+            return;
+        }
+        brightnessImgCharMatcher.setAspectRatio(aspectRatio);
+        shapeImgCharMatcher.setAspectRatio(aspectRatio);
+        System.out.println(SET_ASPECT_MSG + aspectRatio);
+    }
+
     /**
      * this method manages all the possible add, remove commands.
      *
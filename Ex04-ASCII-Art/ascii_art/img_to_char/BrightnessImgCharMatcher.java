@@ -1,9 +1,17 @@
 package ascii_art.img_to_char;
 
+import ascii_output.AsciiOutput;
+import image.CellGrid;
 import image.Image;
+import image.IntegralImage;
+import image.LuminancePyramid;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 /**
  * BrightnessImgCharMatcher class, converts an image to an ASCII char.
@@ -12,21 +20,62 @@ import java.util.Map;
 public class BrightnessImgCharMatcher {
     /**
      * private final statics for magic numbers:
-     * DEFAULT_RESOLUTION, RED_COORDINATE_MULT, GREEN_COORDINATE_MULT, BLUE_COORDINATE_MULT, MAX_RGB_VAL.
+     * DEFAULT_RESOLUTION, MAX_RGB_VAL, DEFAULT_PARALLEL_THRESHOLD (the number of output chars from which
+     * rows are rendered in parallel), DEFAULT_CACHED_RESOLUTIONS (how many resolutions keep their sub
+     * image brightness), DEFAULT_COLOR_STEP (the color mode's default quantization step),
+     * DEFAULT_ASPECT_RATIO (square cells), and the layout of a packed RGB int.
      */
     private final static int DEFAULT_RESOLUTION = 16;
-    private final static double RED_COORDINATE_MULT = 0.2126;
-    private final static double GREEN_COORDINATE_MULT = 0.7152;
-    private final static double BLUE_COORDINATE_MULT = 0.0722;
     private final static int MAX_RGB_VAL = 255;
+    public final static int DEFAULT_PARALLEL_THRESHOLD = 16384;
+    public final static int DEFAULT_CACHED_RESOLUTIONS = 8;
+    public final static int DEFAULT_COLOR_STEP = 16;
+    public final static double DEFAULT_ASPECT_RATIO = 1;
+    private final static int BYTE_MASK = 0xFF;
+    private final static int RED_SHIFT = 16;
+    private final static int GREEN_SHIFT = 8;
     /**
-     * private final fields. font,img, curCharBrightnessMap, ASCIICharBrightnessMap, subImgBrightnessMap.
+     * private final fields. font,img, curCharBrightnessMap, ASCIICharBrightnessMap, subImgBrightnessCache.
      */
     private final String font;
     private final Image img;
     private final HashMap<Character, Double> curCharBrightnessMap;
     private final HashMap<Character, Double> ASCIICharBrightnessMap;
-    private final HashMap<Image, Double> subImgBrightnessMap;
+    private final SubImageBrightnessCache subImgBrightnessCache;
+    /**
+     * the minimal number of output chars for which the rows are rendered in parallel.
+     */
+    private int parallelThreshold;
+    /**
+     * the step each channel of a color is rounded to in the color mode.
+     */
+    private int colorStep;
+    /**
+     * the height of each cell (the sub image of one char) divided by its width.
+     */
+    private double aspectRatio;
+    /**
+     * how chooseChars turns the brightness of the sub images into chars.
+     */
+    private DitherMode ditherMode;
+    /**
+     * the range of the initial brightness of the current char set, found by normalBrightness.
+     */
+    private double minCharBrightness;
+    private double maxCharBrightness;
+    /**
+     * in incremental mode, the last render (null before the first one), and the number of cells whose
+     * char was chosen again by the last chooseChars.
+     */
+    private boolean incremental;
+    private IncrementalRender lastRender;
+    private long lastReassignedCells;
+    /**
+     * the brightness index of the current char set, rebuilt by every chooseChars call: the distinct
+     * normalized brightness values in ascending order, and for each one the char it stands for.
+     */
+    private double[] sortedBrightness;
+    private char[] sortedChars;
 
 
     /**
@@ -36,11 +85,134 @@ public class BrightnessImgCharMatcher {
      * @param font the font of the chars.
      */
     public BrightnessImgCharMatcher(Image img, String font) {
+        this(img, font, DEFAULT_CACHED_RESOLUTIONS);
+    }
+
+    /**
+     * constructor for BrightnessImgCharMatcher.
+     *
+     * @param img               image to convert to AsciiChars.
+     * @param font              the font of the chars.
+     * @param cachedResolutions the number of resolutions whose sub image brightness is kept. the least
+     *                          recently rendered resolution is dropped first.
+     */
+    public BrightnessImgCharMatcher(Image img, String font, int cachedResolutions) {
+        if (cachedResolutions < 1) {
+            throw new IllegalArgumentException("cachedResolutions must be positive");
+        }
         this.img = img;
         this.font = font;
         this.curCharBrightnessMap = new HashMap<>();
         this.ASCIICharBrightnessMap = new HashMap<>();
-        this.subImgBrightnessMap = new HashMap<>();
+        this.subImgBrightnessCache = new SubImageBrightnessCache(cachedResolutions);
+        this.parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+        this.colorStep = DEFAULT_COLOR_STEP;
+        this.aspectRatio = DEFAULT_ASPECT_RATIO;
+        this.ditherMode = DitherMode.NONE;
+    }
+
+    /**
+     * sets from how many output chars a render is split by rows over the common ForkJoinPool. Smaller
+     * renders stay on the calling thread. Both modes produce exactly the same chars.
+     *
+     * @param parallelThreshold the minimal number of chars to render in parallel. 0 always renders in
+     *                          parallel, Integer.MAX_VALUE never does.
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 0) {
+            throw new IllegalArgumentException("parallelThreshold must not be negative");
+        }
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * sets the step each channel of the colors returned by chooseColors is rounded to. Coarser colors
+     * make more neighbouring chars share a color, which keeps colored output small.
+     *
+     * @param colorStep the step, between 1 (exact colors) and 256.
+     */
+    public void setColorStep(int colorStep) {
+        if (colorStep < 1 || colorStep > MAX_RGB_VAL + 1) {
+            throw new IllegalArgumentException("colorStep must be between 1 and 256");
+        }
+        this.colorStep = colorStep;
+    }
+
+    /**
+     * sets the shape of the sub image each char stands for: its height divided by its width. Chars are
+     * usually about twice as high as they are wide, so an aspect ratio of about 2 keeps the proportions
+     * of the image when it's printed. The number of rows of chars follows from it.
+     *
+     * @param aspectRatio the height of a sub image divided by its width, positive.
+     */
+    public void setAspectRatio(double aspectRatio) {
+        if (!(aspectRatio > 0)) {
+            throw new IllegalArgumentException("aspectRatio must be positive");
+        }
+        this.aspectRatio = aspectRatio;
+    }
+
+    /**
+     * sets how chooseChars chooses the char of each sub image: the closest char (NONE), or one of the
+     * dithering modes, which trade the detail of single sub images for smoother gradients when the char
+     * set is small. Dithering doesn't use the incremental mode, and only the overload of chooseChars
+     * that returns the whole array dithers.
+     *
+     * @param ditherMode the dithering mode.
+     */
+    public void setDitherMode(DitherMode ditherMode) {
+        if (ditherMode == null) {
+            throw new IllegalArgumentException("ditherMode must not be null");
+        }
+        this.ditherMode = ditherMode;
+    }
+
+    /**
+     * returns the cells the image is divided into for the given number of chars in a row: numCharsInRow
+     * cols of (almost) equal width covering the whole image, and rows of the height that gives them the
+     * aspect ratio.
+     *
+     * @param numCharsInRow number of chars in a row, between 1 and the width of the image.
+     * @return the grid of cells.
+     */
+    public CellGrid getGrid(int numCharsInRow) {
+        return CellGrid.withAspectRatio(img.getWidth(), img.getHeight(), numCharsInRow, aspectRatio);
+    }
+
+    /**
+     * turns the incremental mode on or off. In incremental mode chooseChars keeps the chars it chose, and
+     * when it's called again for the same grid with a char set of the same brightness range (for example
+     * after adding or removing a char that is neither the brightest nor the darkest), it only chooses
+     * again the chars of the sub images whose brightness is near a char that was added or removed.
+     * The returned array is then the same one every time, updated in place.
+     *
+     * @param incremental true to turn the incremental mode on.
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        this.lastRender = null;
+    }
+
+    /**
+     * @return the number of sub images whose char was chosen by the last chooseChars: all of them for a
+     * full render, only the affected ones for an incremental one.
+     */
+    public long getLastReassignedCells() {
+        return lastReassignedCells;
+    }
+
+    /**
+     * @return the number of sub images whose brightness was found in the cache so far.
+     */
+    public long getCacheHits() {
+        return subImgBrightnessCache.getHits();
+    }
+
+    /**
+     * @return the number of sub images whose brightness had to be calculated so far.
+     */
+    public long getCacheMisses() {
+        return subImgBrightnessCache.getMisses();
     }
 
     /**
@@ -51,9 +223,179 @@ public class BrightnessImgCharMatcher {
      * @return 2-dimensional array of chars that represent the img in ascii chars.
      */
     public char[][] chooseChars(int numCharsInRow, Character[] charSet) {
+        checkCharSet(charSet);
         curCharBrightnessMap.clear();
         calcBrightnessOfSet(charSet);
-        return convertToAsciiChars(numCharsInRow);
+        buildBrightnessIndex();
+        CellGrid grid = getGrid(numCharsInRow);
+        if (ditherMode != DitherMode.NONE) {
+            lastRender = null;
+            lastReassignedCells = (long) grid.getNumCols() * grid.getNumRows();
+            return ditherChars(grid);
+        }
+        if (!incremental) {
+            lastReassignedCells = (long) grid.getNumCols() * grid.getNumRows();
+            return convertToAsciiChars(grid);
+        }
+        if (lastRender == null || !lastRender.canUpdate(grid, minCharBrightness, maxCharBrightness)) {
+            char[][] chars = convertToAsciiChars(grid);
+            lastRender = new IncrementalRender(grid, subImgBrightnessCache.getResolution(grid), chars);
+            lastReassignedCells = (long) grid.getNumCols() * grid.getNumRows();
+        } else {
+            lastReassignedCells = updateLastRender();
+        }
+        lastRender.setIndex(sortedBrightness, sortedChars, minCharBrightness, maxCharBrightness);
+        return lastRender.getChars();
+    }
+
+    /**
+     * returns the average color of each sub image, for coloring the chars chosen by chooseChars with the
+     * same numCharsInRow. The colors of a resolution are computed in one pass over the image and then
+     * cached like the sub image brightness.
+     *
+     * @param numCharsInRow number of chars in a row.
+     * @return 2-dimensional array of packed RGB ints (0xRRGGBB), rounded to the color step.
+     */
+    public int[][] chooseColors(int numCharsInRow) {
+        CellGrid grid = getGrid(numCharsInRow);
+        int[] colors = subImgBrightnessCache.getColors(grid, () -> img.getCellColors(grid));
+        int[][] rowColors = new int[grid.getNumRows()][];
+        for (int row = 0; row < grid.getNumRows(); row++) {
+            rowColors[row] = quantize(colors, row * numCharsInRow, numCharsInRow);
+        }
+        return rowColors;
+    }
+
+    /**
+     * this method converts the img to chars one row at a time, and hands each row to rowConsumer as soon
+     * as it is done. Each row is computed from its own band of the image (img.getBand), so for a
+     * StreamingImage only one band is decoded and held in memory at a time. The rows are the same as
+     * those of chooseChars, but the sub image brightness isn't cached.
+     *
+     * @param numCharsInRow number of chars in a row.
+     * @param charSet       the chars to calculate their brightness (we might not use all of them).
+     * @param rowConsumer   gets the rows of chars, from top to bottom.
+     */
+    public void chooseChars(int numCharsInRow, Character[] charSet, Consumer<char[]> rowConsumer) {
+        checkCharSet(charSet);
+        curCharBrightnessMap.clear();
+        calcBrightnessOfSet(charSet);
+        buildBrightnessIndex();
+        CellGrid grid = getGrid(numCharsInRow);
+        for (int row = 0; row < grid.getNumRows(); row++) {
+            Image band = img.getBand(grid.getRowStart(row), grid.getCellHeight(row));
+            rowConsumer.accept(convertBand(band, grid.getRow(row)));
+        }
+    }
+
+    /**
+     * this method converts the img to chars and writes them to output row by row, as each row is done
+     * (see the rowConsumer overload), so neither the image nor the whole array of chars has to be held
+     * in memory.
+     *
+     * @param numCharsInRow number of chars in a row.
+     * @param charSet       the chars to calculate their brightness (we might not use all of them).
+     * @param output        gets begin, then the rows of chars from top to bottom, then end (also if
+     *                      converting a row throws, so the output is always closed).
+     */
+    public void chooseChars(int numCharsInRow, Character[] charSet, AsciiOutput output) {
+        checkCharSet(charSet);
+        CellGrid grid = getGrid(numCharsInRow);
+        output.begin(grid.getNumCols(), grid.getNumRows());
+        try {
+            chooseChars(numCharsInRow, charSet, output::writeRow);
+        } finally {
+            output.end();
+        }
+    }
+
+    /**
+     * like the AsciiOutput overload, but each row is written with the average color of each of its sub
+     * images (see chooseColors), computed from the same band.
+     *
+     * @param numCharsInRow number of chars in a row.
+     * @param charSet       the chars to calculate their brightness (we might not use all of them).
+     * @param output        gets begin, then the rows of chars and their colors from top to bottom, then end
+     *                      (also if converting a row throws).
+     */
+    public void chooseColoredChars(int numCharsInRow, Character[] charSet, AsciiOutput output) {
+        checkCharSet(charSet);
+        curCharBrightnessMap.clear();
+        calcBrightnessOfSet(charSet);
+        buildBrightnessIndex();
+        CellGrid grid = getGrid(numCharsInRow);
+        output.begin(grid.getNumCols(), grid.getNumRows());
+        try {
+            for (int row = 0; row < grid.getNumRows(); row++) {
+                Image band = img.getBand(grid.getRowStart(row), grid.getCellHeight(row));
+                CellGrid bandGrid = grid.getRow(row);
+                output.writeRow(convertBand(band, bandGrid),
+                        quantize(band.getCellColors(bandGrid), 0, numCharsInRow));
+            }
+        } finally {
+            output.end();
+        }
+    }
+
+    /**
+     * makes sure there is a char to choose, before anything is computed or written.
+     *
+     * @param charSet the chars to choose from.
+     */
+    private static void checkCharSet(Character[] charSet) {
+        if (charSet.length == 0) {
+            throw new IllegalArgumentException("the char set is empty");
+        }
+    }
+
+    /**
+     * updates the chars of lastRender from its brightness index to the current one. The char of a sub
+     * image depends only on the two entries of the index around its brightness, so it can only change if
+     * one of them was added, removed or changed its char. For every such entry, the sub images between
+     * its neighbours (in the union of both indexes) get their char again.
+     *
+     * @return the number of sub images whose char was chosen again.
+     */
+    private long updateLastRender() {
+        double[] oldBrightness = lastRender.getSortedBrightness();
+        char[] oldChars = lastRender.getSortedChars();
+        //merge both indexes, marking the entries that aren't the same in both
+        double[] union = new double[oldBrightness.length + sortedBrightness.length];
+        boolean[] changed = new boolean[union.length];
+        int size = 0, i = 0, j = 0;
+        while (i < oldBrightness.length || j < sortedBrightness.length) {
+            if (j == sortedBrightness.length ||
+                    (i < oldBrightness.length && oldBrightness[i] < sortedBrightness[j])) {
+                union[size] = oldBrightness[i++];
+                changed[size++] = true;
+            } else if (i == oldBrightness.length || sortedBrightness[j] < oldBrightness[i]) {
+                union[size] = sortedBrightness[j++];
+                changed[size++] = true;
+            } else {
+                union[size] = sortedBrightness[j];
+                changed[size++] = oldChars[i++] != sortedChars[j++];
+            }
+        }
+        long[] reassigned = new long[1];
+        double coveredUpTo = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k < size; k++) {
+            if (!changed[k]) {
+                continue;
+            }
+            double low = k == 0 ? Double.NEGATIVE_INFINITY : union[k - 1];
+            double high = k == size - 1 ? Double.POSITIVE_INFINITY : union[k + 1];
+            //neighbouring changes share their ranges, don't visit the same sub images twice
+            low = Math.max(low, coveredUpTo);
+            if (low > high) {
+                continue;
+            }
+            lastRender.forEachCellInRange(low, high, cell -> {
+                lastRender.setChar(cell, findBestChar(lastRender.getBrightness(cell)));
+                reassigned[0]++;
+            });
+            coveredUpTo = Math.nextUp(high);
+        }
+        return reassigned[0];
     }
 
     /**
@@ -71,37 +413,72 @@ public class BrightnessImgCharMatcher {
                 ASCIICharBrightnessMap.put(c, charBrightness);
             }
         }
+        GlyphBrightnessCache.getShared().save();
         normalBrightness();
     }
 
+    /**
+     * builds sortedBrightness and sortedChars from curCharBrightnessMap. The chars are sorted by
+     * brightness and then by char value, and when several chars share a brightness only the smallest
+     * char is kept, since findBestChar would never choose the others.
+     */
+    private void buildBrightnessIndex() {
+        Character[] chars = curCharBrightnessMap.keySet().toArray(new Character[0]);
+        Arrays.sort(chars, Comparator.comparingDouble((Character c) -> curCharBrightnessMap.get(c))
+                .thenComparing(Comparator.naturalOrder()));
+        sortedBrightness = new double[chars.length];
+        sortedChars = new char[chars.length];
+        int distinct = 0;
+        for (Character c : chars) {
+            double brightness = curCharBrightnessMap.get(c);
+            if (distinct == 0 || brightness != sortedBrightness[distinct - 1]) {
+                sortedBrightness[distinct] = brightness;
+                sortedChars[distinct] = c;
+                distinct++;
+            }
+        }
+        sortedBrightness = Arrays.copyOf(sortedBrightness, distinct);
+        sortedChars = Arrays.copyOf(sortedChars, distinct);
+    }
+
     /**
      * this method calculates the initial brightness of a char.
-     * It gets a boolean arr from getImg, counts all the True it got, divides the sum by the default size
-     * (DEFAULT_RESOLUTION*DEFAULT_RESOLUTION) and returns the result.
+     * It is read from the persistent GlyphBrightnessCache if an earlier run already calculated it.
+     * Otherwise it gets the packed glyph from getPackedImg, counts all the set bits, divides the sum by the
+     * default size (DEFAULT_RESOLUTION*DEFAULT_RESOLUTION), caches and returns the result.
      *
      * @param c the char, we calculate the brightness of.
      * @return the initial brightness of char.
      */
     private double calcInitCharBrightness(char c) {
-        boolean[][] booleanArr = CharRenderer.getImg(c, DEFAULT_RESOLUTION, font);
+        GlyphBrightnessCache glyphCache = GlyphBrightnessCache.getShared();
+        Double cached = glyphCache.get(font, DEFAULT_RESOLUTION, c);
+        if (cached != null) {
+            return cached;
+        }
+        long[] packedImg = CharRenderer.getPackedImg(c, DEFAULT_RESOLUTION, font);
         int countTrue = 0;
-        for (int i = 0; i < DEFAULT_RESOLUTION; i++) {
-            for (int j = 0; j < DEFAULT_RESOLUTION; j++) {
-                if (booleanArr[i][j]) {
-                    countTrue++;
-                }
-            }
+        for (long word : packedImg) {
+            countTrue += Long.bitCount(word);
         }
-        return (double) countTrue / (DEFAULT_RESOLUTION * DEFAULT_RESOLUTION);
+        double brightness = (double) countTrue / (DEFAULT_RESOLUTION * DEFAULT_RESOLUTION);
+        glyphCache.put(font, DEFAULT_RESOLUTION, c, brightness);
+        return brightness;
     }
 
     /**
-     * Normalizes the brightness of each char in the charBrightnessMap.
+     * Normalizes the brightness of each char in the charBrightnessMap. If all the chars are equally
+     * bright, all of them get brightness 0.
      */
     private void normalBrightness() {
         double minBrightness = getMinBrightness();
         double maxBrightness = getMaxBrightness();
+        minCharBrightness = minBrightness;
+        maxCharBrightness = maxBrightness;
         double maxSubMin = maxBrightness - minBrightness;
+        if (maxSubMin == 0) {
+            maxSubMin = 1;
+        }
 
         for (Map.Entry<Character, Double> entry : curCharBrightnessMap.entrySet()) {
             Double newCharBrightness = (entry.getValue() - minBrightness) / maxSubMin;
@@ -136,86 +513,201 @@ public class BrightnessImgCharMatcher {
     }
 
     /**
-     * converts an img to char and save the brightness of it to the map(if it's not already there).
+     * converts an img to char and save the brightness of it to the cache(if it's not already there).
+     * Every char depends only on its own sub image, so when there are at least parallelThreshold chars
+     * the rows are converted in parallel.
+     * When the cells are squares of a power of 2 pixels, the brightness of each cell is read from the
+     * matching level of the image's luminance pyramid, otherwise it is summed from the summed-area table.
      *
-     * @param numCharsInRow num of chars in row .
+     * @param grid the cells of the image, one per char.
      * @return 2-dimensional array of chars. Each char representing a subImage.
      */
-    private char[][] convertToAsciiChars(int numCharsInRow) {
-        int sizeOfEachSubImg = img.getWidth() / numCharsInRow;
-        int numCharsInCol = img.getHeight() / sizeOfEachSubImg;
-        char[][] AsciiChars = new char[numCharsInCol][numCharsInRow];
+    private char[][] convertToAsciiChars(CellGrid grid) {
+        char[][] AsciiChars = new char[grid.getNumRows()][grid.getNumCols()];
+        convertRows(grid, AsciiChars);
+        return AsciiChars;
+    }
 
-        int subImageCounter = 0;
-        for (Image subImg : img.getSubImages(img.getWidth() / numCharsInRow)) {
-            double val;
-            //check if already calculated the brightness
-            if (subImgBrightnessMap.containsKey(subImg)) {
-                val = subImgBrightnessMap.get(subImg);
-            } else {
-                val = convertSingleImgToDouble(subImg, img.getWidth() / numCharsInRow);
-                subImgBrightnessMap.put(subImg, val);
-            }
-            char finalChar = findBestChar(val);
+    /**
+     * converts an img to chars with the current dithering mode. The brightness of the sub images comes
+     * from (and is saved to) the cache, like in convertToAsciiChars, and is then dithered as a whole.
+     *
+     * @param grid the cells of the image, one per char.
+     * @return 2-dimensional array of chars. Each char representing a subImage.
+     */
+    private char[][] ditherChars(CellGrid grid) {
+        double[] brightness = convertRows(grid, null);
+        Ditherer ditherer = new Ditherer(sortedBrightness, sortedChars, this::findBestIndex);
+        return ditherer.dither(ditherMode, brightness, grid.getNumCols(), grid.getNumRows(),
+                brightness.length >= parallelThreshold ? Runtime.getRuntime().availableProcessors() : 1);
+    }
+
+    /**
+     * makes sure the brightness of every sub image of the grid is in the cache, and chooses the closest
+     * char of each one if chars isn't null.
+     *
+     * @param grid  the cells of the image, one per char.
+     * @param chars the output rows to fill, or null to only fill the cache.
+     * @return the brightness of all sub images of the grid, row after row.
+     */
+    private double[] convertRows(CellGrid grid, char[][] chars) {
+        int level = getPyramidLevel(grid);
+        IntegralImage integralImage = level < 0 ? img.getIntegralImage() : null;
+        LuminancePyramid pyramid = level < 0 ? null : img.getLuminancePyramid();
+        double[] brightness = subImgBrightnessCache.getResolution(grid);
 
-            AsciiChars[(subImageCounter / numCharsInRow)][subImageCounter % numCharsInRow] = finalChar;
-            subImageCounter++;
+        IntStream rows = IntStream.range(0, grid.getNumRows());
+        if (brightness.length >= parallelThreshold) {
+            rows = rows.parallel();
         }
-        return AsciiChars;
+        rows.forEach(row -> convertRow(chars == null ? null : chars[row], brightness, integralImage, pyramid, level,
+                grid, row));
+        return brightness;
     }
 
     /**
-     * converts a single sub-img to a char. It first converts each pixel of the subImg to a grey pixel,
-     * then sum all the values and divides the result by the size of the sub image and MAX_RGB_VAL.
+     * @param grid the cells of the image.
+     * @return the level of the luminance pyramid whose pixels are the cells of the grid, or -1 if the
+     * cells aren't squares of a power of 2 pixels.
+     */
+    private static int getPyramidLevel(CellGrid grid) {
+        int cellSize = grid.getSquareCellSize();
+        if (cellSize == 0 || Integer.bitCount(cellSize) != 1) {
+            return -1;
+        }
+        return Integer.numberOfTrailingZeros(cellSize);
+    }
+
+    /**
+     * converts a single row of sub images to chars. The brightness of each sub image is taken from the
+     * cached resolution, or calculated and stored there.
      *
-     * @param subImg     sub Image
-     * @param sizeSubImg the size of the sub Image (height or width, it's a square)
-     * @return char that represent the img.
+     * @param rowChars      the output row to fill, or null to only fill brightness.
+     * @param brightness    the cached brightness of all sub images of this resolution, row after row.
+     * @param integralImage the luminance summed-area table of img, or null if the pyramid is used.
+     * @param pyramid       the luminance pyramid of img, or null if the summed-area table is used.
+     * @param level         the level of the pyramid whose pixels are the cells of the grid.
+     * @param grid          the cells of the image.
+     * @param row           the row index.
      */
-    private double convertSingleImgToDouble(Image subImg, int sizeSubImg) {
-        double[][] greyPixelArr = new double[sizeSubImg][sizeSubImg];
-        for (int i = 0; i < sizeSubImg; i++) {
-            for (int j = 0; j < sizeSubImg; j++) {
-                greyPixelArr[i][j] =
-                        subImg.getPixel(j, i).getRed() * RED_COORDINATE_MULT +
-                                subImg.getPixel(j, i).getGreen() * GREEN_COORDINATE_MULT +
-                                subImg.getPixel(j, i).getBlue() * BLUE_COORDINATE_MULT;
+    private void convertRow(char[] rowChars, double[] brightness, IntegralImage integralImage,
+                            LuminancePyramid pyramid, int level, CellGrid grid, int row) {
+        int misses = 0;
+        int numCols = grid.getNumCols();
+        for (int col = 0; col < numCols; col++) {
+            int index = row * numCols + col;
+            double val = brightness[index];
+            //check if already calculated the brightness
+            if (Double.isNaN(val)) {
+                val = pyramid == null ? convertSingleImgToDouble(integralImage, grid, row, col) :
+                        pyramid.getAverage(level, col, row) / MAX_RGB_VAL;
+                brightness[index] = val;
+                misses++;
             }
-        }
-        double sumGray = 0;
-        for (double[] doubles : greyPixelArr) {
-            for (int j = 0; j < greyPixelArr.length; j++) {
-                sumGray += doubles[j];
+            if (rowChars != null) {
+                rowChars[col] = findBestChar(val);
             }
         }
-        return sumGray / (subImg.getWidth() * subImg.getHeight() * MAX_RGB_VAL);
+        subImgBrightnessCache.record(numCols - misses, misses);
+    }
+
+    /**
+     * converts a band of the image, one row of cells high, to a row of chars.
+     *
+     * @param band     the band.
+     * @param bandGrid the cells of the band, a single row.
+     * @return the chars of the band.
+     */
+    private char[] convertBand(Image band, CellGrid bandGrid) {
+        IntegralImage bandIntegralImage = band.getIntegralImage();
+        char[] rowChars = new char[bandGrid.getNumCols()];
+        for (int col = 0; col < rowChars.length; col++) {
+            rowChars[col] = findBestChar(convertSingleImgToDouble(bandIntegralImage, bandGrid, 0, col));
+        }
+        return rowChars;
+    }
+
+    /**
+     * converts a single sub-img to its brightness: the average grey value of its pixels, read from the
+     * summed-area table in constant time (whatever the size of the cell), divided by MAX_RGB_VAL.
+     *
+     * @param integralImage the luminance summed-area table of img.
+     * @param grid          the cells of the image.
+     * @param row           the row index of the sub image.
+     * @param col           the col index of the sub image.
+     * @return the brightness of the sub image, between 0 and 1.
+     */
+    private double convertSingleImgToDouble(IntegralImage integralImage, CellGrid grid, int row, int col) {
+        return integralImage.getBlockAverage(grid.getColStart(col), grid.getRowStart(row), grid.getCellWidth(col),
+                grid.getCellHeight(row)) / MAX_RGB_VAL;
+    }
+
+    /**
+     * rounds each channel of a range of colors to the nearest multiple of colorStep.
+     *
+     * @param colors the packed RGB colors.
+     * @param first  the index of the first color of the range.
+     * @param length the number of colors in the range.
+     * @return the rounded colors of the range, in a new array.
+     */
+    private int[] quantize(int[] colors, int first, int length) {
+        int[] rounded = new int[length];
+        for (int i = 0; i < length; i++) {
+            int rgb = colors[first + i];
+            rounded[i] = quantizeChannel(rgb >> RED_SHIFT) << RED_SHIFT |
+                    quantizeChannel(rgb >> GREEN_SHIFT) << GREEN_SHIFT | quantizeChannel(rgb);
+        }
+        return rounded;
+    }
+
+    /**
+     * @param channel a channel value, in its lowest 8 bits.
+     * @return the channel rounded to the nearest multiple of colorStep, at most MAX_RGB_VAL.
+     */
+    private int quantizeChannel(int channel) {
+        int value = channel & BYTE_MASK;
+        return Math.min(MAX_RGB_VAL, (value + colorStep / 2) / colorStep * colorStep);
     }
 
     /**
-     * finds the closest char to val from charBrightnessMap.
+     * finds the closest char to val with a binary search in sortedBrightness.
+     * Ties are broken by char value: among chars with the same brightness, and between two chars that are
+     * exactly as close to val, the smaller char is chosen.
      *
      * @param val the value.
      * @return the char with the closest Brightness to val.
      */
     private char findBestChar(double val) {
-        //if the val is in the map return its key.
-        if (curCharBrightnessMap.containsValue(val)) {
-            for (Map.Entry<Character, Double> entry : curCharBrightnessMap.entrySet()) {
-                if (entry.getValue().equals(val)) {
-                    return entry.getKey();
-                }
-            }
+        return sortedChars[findBestIndex(val)];
+    }
+
+    /**
+     * finds the entry of the brightness index closest to val, breaking ties like findBestChar.
+     *
+     * @param val the value.
+     * @return the index in sortedBrightness of the closest brightness to val.
+     */
+    private int findBestIndex(double val) {
+        int index = Arrays.binarySearch(sortedBrightness, val);
+        //if the val is in the index return it.
+        if (index >= 0) {
+            return index;
         }
-        char closestChar = ' ';
-        double sub = 0;
-        boolean start = true;
-        for (Map.Entry<Character, Double> entry : curCharBrightnessMap.entrySet()) {
-            if (start || Math.abs(val - entry.getValue()) < sub) {
-                sub = Math.abs(val - entry.getValue());
-                closestChar = entry.getKey();
-                start = false;
-            }
+        int above = -index - 1;
+        if (above == 0) {
+            return 0;
+        }
+        if (above == sortedBrightness.length) {
+            return above - 1;
+        }
+        double subBelow = val - sortedBrightness[above - 1];
+        double subAbove = sortedBrightness[above] - val;
+        if (subBelow < subAbove) {
+            return above - 1;
+        }
+        if (subAbove < subBelow) {
+            return above;
         }
-        return closestChar;
+        return sortedChars[above - 1] < sortedChars[above] ? above - 1 : above;
     }
 }
@@ -2,6 +2,7 @@ package ascii_art.img_to_char;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Inspired by, and partly copied from
@@ -14,32 +15,84 @@ import java.awt.image.BufferedImage;
 public class CharRenderer {
     private static final double X_OFFSET_FACTOR = 0.2;
     private static final double Y_OFFSET_FACTOR = 0.75;
+    private static final int BITS_IN_WORD = Long.SIZE;
+    private static final int CHAR_BITS = Character.SIZE;
+    private static final char KEY_SEPARATOR = '\0';
+
+    /**
+     * process-wide caches, shared by all threads: the rendered glyphs of each font, by the key computed
+     * in getImg, as packed bitsets, and the Font objects by name and size.
+     */
+    private static final ConcurrentHashMap<String, ConcurrentHashMap<Integer, long[]>> GLYPHS =
+            new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Font> FONTS = new ConcurrentHashMap<>();
 
     /**
      * Renders a given character, according to how it looks in the font specified in the
      * constructor, to a square black&white image (2D array of booleans),
      * whose dimension in pixels is specified.
+     * Each glyph is rendered only once per process, the returned array is a fresh copy of the cached one.
      */
     public static boolean[][] getImg(char c, int pixels, String fontName) {
-        int key = (pixels << 8) | c;
-        return render(c, pixels, fontName);
+        long[] packed = getPackedImg(c, pixels, fontName);
+        boolean[][] matrix = new boolean[pixels][pixels];
+        for (int y = 0; y < pixels; y++) {
+            for (int x = 0; x < pixels; x++) {
+                matrix[y][x] = isSet(packed, y * pixels + x);
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Same as getImg, but returns the cached glyph itself, as a bitset: bit (y * pixels + x) is set if
+     * getImg(c, pixels, fontName)[y][x] is true. The array is shared and must not be changed.
+     */
+    public static long[] getPackedImg(char c, int pixels, String fontName) {
+        int key = (pixels << CHAR_BITS) | c;
+        return GLYPHS.computeIfAbsent(fontName, name -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key, k -> render(c, pixels, fontName));
     }
-    private static boolean[][] render(char c, int pixels, String fontName) {
+
+    /**
+     * A benchmark hook: drops every cached glyph and font, so the next getImg of each glyph renders it
+     * again, as the first render of a process does. Only CharRendererBenchmark.getImgCold calls it. The
+     * caches are shared by the whole process, so nothing else should: it would make every matcher render
+     * its glyphs again.
+     */
+    static void clearCache() {
+        GLYPHS.clear();
+        FONTS.clear();
+    }
+
+    /**
+     * @return true if the given bit of the packed glyph is set.
+     */
+    public static boolean isSet(long[] packed, int bit) {
+        return (packed[bit / BITS_IN_WORD] & (1L << (bit % BITS_IN_WORD))) != 0;
+    }
+
+    private static long[] render(char c, int pixels, String fontName) {
         String charStr = Character.toString(c);
-        Font font = new Font(fontName, Font.PLAIN, pixels);
+        Font font = FONTS.computeIfAbsent(fontName + KEY_SEPARATOR + pixels,
+                key -> new Font(fontName, Font.PLAIN, pixels));
         BufferedImage img = new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_ARGB);
         Graphics g = img.getGraphics();
         g.setFont(font);
         int xOffset = (int)Math.round(pixels*X_OFFSET_FACTOR);
         int yOffset = (int)Math.round(pixels*Y_OFFSET_FACTOR);
         g.drawString(charStr, xOffset, yOffset);
-        boolean[][] matrix = new boolean[pixels][pixels];
+        g.dispose();
+        long[] packed = new long[(pixels * pixels + BITS_IN_WORD - 1) / BITS_IN_WORD];
         for(int y = 0 ; y < pixels ; y++) {
             for(int x = 0 ; x < pixels ; x++) {
-                matrix[y][x] = img.getRGB(x, y) == 0; //is the color black
+                if (img.getRGB(x, y) == 0) { //is the color black
+                    int bit = y * pixels + x;
+                    packed[bit / BITS_IN_WORD] |= 1L << (bit % BITS_IN_WORD);
+                }
             }
         }
-        return matrix;
+        return packed;
     }
 
     //for debugging
@@ -0,0 +1,17 @@
+package ascii_art.img_to_char;
+
+/**
+ * the ways BrightnessImgCharMatcher can choose the char of each sub image.
+ * NONE chooses the char whose brightness is closest to the sub image, independently of its neighbours.
+ * ORDERED chooses between the two chars around the brightness of the sub image by comparing its
+ * position between them with a 4x4 Bayer threshold matrix, so areas between two chars get a regular
+ * mix of both.
+ * FLOYD_STEINBERG chooses the closest char too, and spreads the difference to the neighbours that are
+ * still to be chosen (7/16 right, 3/16 down-left, 5/16 down, 1/16 down-right), so on average every area
+ * keeps its brightness.
+ */
+public enum DitherMode {
+    NONE,
+    ORDERED,
+    FLOYD_STEINBERG
+}
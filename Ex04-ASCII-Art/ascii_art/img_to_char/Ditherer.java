@@ -0,0 +1,191 @@
+package ascii_art.img_to_char;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.DoubleToIntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * A package-private class of the package img_to_char.
+ * chooses the chars of a grid of sub images with ordered or error-diffusion dithering, given the
+ * brightness of every sub image and the brightness index of the char set.
+ * Ordered dithering treats every cell on its own, so its rows are simply split between threads.
+ * Floyd-Steinberg error diffusion makes every cell depend on its left neighbour and on the three cells
+ * above it, so its rows are processed as a wavefront: each thread takes the next row and follows the row
+ * above it two cells behind, which is as soon as all the error that row sends down to a cell has
+ * arrived. The error coming from the row above is kept in its own buffer and always added in the same
+ * order, so the result is exactly the same with any number of threads.
+ */
+class Ditherer {
+    /**
+     * the 4x4 Bayer matrix. the threshold of a cell is (BAYER[(row % 4) * 4 + col % 4] + 0.5) / 16.
+     */
+    private static final int[] BAYER = {
+            0, 8, 2, 10,
+            12, 4, 14, 6,
+            3, 11, 1, 9,
+            15, 7, 13, 5};
+    private static final int BAYER_SIZE = 4;
+    private static final int BAYER_MASK = BAYER_SIZE - 1;
+    private static final double BAYER_LEVELS = BAYER_SIZE * BAYER_SIZE;
+    /**
+     * the Floyd-Steinberg weights of the error sent to each neighbour.
+     */
+    private static final double RIGHT_WEIGHT = 7.0 / 16;
+    private static final double DOWN_LEFT_WEIGHT = 3.0 / 16;
+    private static final double DOWN_WEIGHT = 5.0 / 16;
+    private static final double DOWN_RIGHT_WEIGHT = 1.0 / 16;
+    /**
+     * how far (in cells) a row of the wavefront must stay behind the row above it.
+     */
+    private static final int WAVEFRONT_LAG = 2;
+    /**
+     * the number of busy-wait rounds before a waiting row yields its thread.
+     */
+    private static final int SPINS_BEFORE_YIELD = 64;
+    /**
+     * private final fields- the brightness index of the char set (ascending brightness and the char of
+     * each), and the function that finds the index entry closest to a brightness.
+     */
+    private final double[] sortedBrightness;
+    private final char[] sortedChars;
+    private final DoubleToIntFunction findBestIndex;
+
+    /**
+     * constructor for Ditherer.
+     *
+     * @param sortedBrightness the distinct normalized brightness values of the char set, ascending.
+     * @param sortedChars      the char of each brightness value.
+     * @param findBestIndex    returns the index of the closest brightness value, as plain matching does.
+     */
+    Ditherer(double[] sortedBrightness, char[] sortedChars, DoubleToIntFunction findBestIndex) {
+        this.sortedBrightness = sortedBrightness;
+        this.sortedChars = sortedChars;
+        this.findBestIndex = findBestIndex;
+    }
+
+    /**
+     * chooses the chars of a grid with the given dithering.
+     *
+     * @param mode       ORDERED or FLOYD_STEINBERG.
+     * @param brightness the brightness of each cell, row after row.
+     * @param numCols    the number of cells in a row.
+     * @param numRows    the number of cells in a col.
+     * @param numWorkers the number of tasks the work is split into, on the common ForkJoinPool. 1 does
+     *                   all of it on the calling thread.
+     * @return the chars of the cells.
+     */
+    char[][] dither(DitherMode mode, double[] brightness, int numCols, int numRows, int numWorkers) {
+        if (numWorkers < 1) {
+            throw new IllegalArgumentException("numWorkers must be positive");
+        }
+        char[][] chars = new char[numRows][numCols];
+        if (mode == DitherMode.ORDERED) {
+            IntStream rows = IntStream.range(0, numRows);
+            if (numWorkers > 1) {
+                rows = rows.parallel();
+            }
+            rows.forEach(row -> orderedRow(chars[row], brightness, row));
+            return chars;
+        }
+        double[] fromAbove = new double[brightness.length];
+        AtomicIntegerArray progress = new AtomicIntegerArray(numRows);
+        AtomicInteger nextRow = new AtomicInteger();
+        //rows are taken in order, so the row a worker waits for is always held by a running worker
+        IntStream.range(0, Math.min(numRows, numWorkers)).parallel().forEach(worker -> {
+            for (int row = nextRow.getAndIncrement(); row < numRows; row = nextRow.getAndIncrement()) {
+                diffuseRow(chars[row], brightness, fromAbove, progress, row);
+            }
+        });
+        return chars;
+    }
+
+    /**
+     * chooses the chars of a row with ordered dithering: between the two chars around the brightness of
+     * a cell, the brighter one is chosen if the cell's position between them passes its Bayer threshold.
+     *
+     * @param rowChars   the output row to fill.
+     * @param brightness the brightness of each cell, row after row.
+     * @param row        the row index.
+     */
+    private void orderedRow(char[] rowChars, double[] brightness, int row) {
+        int last = sortedBrightness.length - 1;
+        for (int col = 0; col < rowChars.length; col++) {
+            double val = brightness[row * rowChars.length + col];
+            int index = Arrays.binarySearch(sortedBrightness, val);
+            if (index >= 0) {
+                rowChars[col] = sortedChars[index];
+                continue;
+            }
+            int above = -index - 1;
+            if (above == 0 || above > last) {
+                rowChars[col] = sortedChars[Math.min(above, last)];
+                continue;
+            }
+            double position = (val - sortedBrightness[above - 1]) /
+                    (sortedBrightness[above] - sortedBrightness[above - 1]);
+            double threshold = (BAYER[(row & BAYER_MASK) * BAYER_SIZE + (col & BAYER_MASK)] + 0.5) / BAYER_LEVELS;
+            rowChars[col] = sortedChars[position > threshold ? above : above - 1];
+        }
+    }
+
+    /**
+     * chooses the chars of a row with Floyd-Steinberg error diffusion, following the row above it two
+     * cells behind. The error from the left neighbour is carried in a local variable, the error for the
+     * row below is added to fromAbove, and progress tells the row below how far this row got.
+     *
+     * @param rowChars   the output row to fill.
+     * @param brightness the brightness of each cell, row after row.
+     * @param fromAbove  the error each cell gets from the row above it, row after row.
+     * @param progress   the number of cells already done in each row.
+     * @param row        the row index.
+     */
+    private void diffuseRow(char[] rowChars, double[] brightness, double[] fromAbove,
+                            AtomicIntegerArray progress, int row) {
+        int numCols = rowChars.length;
+        int first = row * numCols;
+        boolean hasRowBelow = first + numCols < brightness.length;
+        double fromLeft = 0;
+        for (int col = 0; col < numCols; col++) {
+            if (row > 0) {
+                awaitProgress(progress, row - 1, Math.min(col + WAVEFRONT_LAG, numCols));
+            }
+            double val = brightness[first + col] + fromAbove[first + col] + fromLeft;
+            int index = findBestIndex.applyAsInt(val);
+            rowChars[col] = sortedChars[index];
+            double error = val - sortedBrightness[index];
+            fromLeft = error * RIGHT_WEIGHT;
+            if (hasRowBelow) {
+                int below = first + numCols + col;
+                if (col > 0) {
+                    fromAbove[below - 1] += error * DOWN_LEFT_WEIGHT;
+                }
+                fromAbove[below] += error * DOWN_WEIGHT;
+                if (col + 1 < numCols) {
+                    fromAbove[below + 1] += error * DOWN_RIGHT_WEIGHT;
+                }
+            }
+            progress.setRelease(row, col + 1);
+        }
+    }
+
+    /**
+     * waits until a row has done at least the given number of cells. The writes of that row to fromAbove
+     * happen-before the return.
+     *
+     * @param progress the number of cells already done in each row.
+     * @param row      the row to wait for.
+     * @param cells    the number of cells to wait for.
+     */
+    private static void awaitProgress(AtomicIntegerArray progress, int row, int cells) {
+        int spins = 0;
+        while (progress.getAcquire(row) < cells) {
+            if (++spins < SPINS_BEFORE_YIELD) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package ascii_art.img_to_char;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * A package-private class of the package img_to_char.
+ * a persistent cache of the initial brightness of chars, keyed by (font name, resolution, char), so
+ * that a new process doesn't have to rasterize the same glyphs again.
+ * The file is memory-mapped and read once, on first use. It's a compact binary file:
+ * MAGIC, VERSION, and then one section per (font, resolution): the UTF-8 font name (length prefixed),
+ * the resolution, the number of chars, and for each char the char itself and its brightness.
+ * Failing to read or write the file is logged and otherwise ignored, the cache then works in memory.
+ */
+class GlyphBrightnessCache {
+    /**
+     * the system property that overrides the cache file. an empty value disables the file.
+     */
+    static final String FILE_PROPERTY = "ascii_art.glyphCache";
+    /**
+     * private static final fields- the default location of the file and the format constants.
+     */
+    private static final Path DEFAULT_FILE =
+            Paths.get(System.getProperty("user.home"), ".ascii_art", "glyph_brightness.bin");
+    private static final int MAGIC = 0x47425243;
+    private static final int VERSION = 1;
+    private static final char KEY_SEPARATOR = '\0';
+    private static final int ENTRY_BYTES = Character.BYTES + Double.BYTES;
+    /**
+     * the cache shared by all matchers of the process.
+     */
+    private static GlyphBrightnessCache shared;
+
+    /**
+     * private fields- file (null if there is no backing file), sections (font and resolution key to
+     * brightness of each char), dirty (were chars added since the file was last written).
+     */
+    private final Path file;
+    private final HashMap<String, HashMap<Character, Double>> sections;
+    private boolean dirty;
+
+    /**
+     * constructor- loads the given file, if it exists.
+     *
+     * @param file the backing file, or null for a cache that is only kept in memory.
+     */
+    GlyphBrightnessCache(Path file) {
+        this.file = file;
+        this.sections = new HashMap<>();
+        this.dirty = false;
+        if (file != null && Files.isRegularFile(file)) {
+            load();
+        }
+    }
+
+    /**
+     * returns the cache shared by the whole process. its file is DEFAULT_FILE, unless FILE_PROPERTY says
+     * otherwise.
+     *
+     * @return the shared cache.
+     */
+    static synchronized GlyphBrightnessCache getShared() {
+        if (shared == null) {
+            String property = System.getProperty(FILE_PROPERTY);
+            Path file = property == null ? DEFAULT_FILE : property.isEmpty() ? null : Paths.get(property);
+            shared = new GlyphBrightnessCache(file);
+        }
+        return shared;
+    }
+
+    /**
+     * returns the cached brightness of a char.
+     *
+     * @param fontName   the font the char was rendered in.
+     * @param resolution the size of the rendered square, in pixels.
+     * @param c          the char.
+     * @return the cached brightness, or null if it isn't in the cache.
+     */
+    synchronized Double get(String fontName, int resolution, char c) {
+        HashMap<Character, Double> section = sections.get(toKey(fontName, resolution));
+        return section == null ? null : section.get(c);
+    }
+
+    /**
+     * adds the brightness of a char to the cache. It is written to the file by the next save.
+     *
+     * @param fontName   the font the char was rendered in.
+     * @param resolution the size of the rendered square, in pixels.
+     * @param c          the char.
+     * @param brightness the brightness of the char.
+     */
+    synchronized void put(String fontName, int resolution, char c, double brightness) {
+        sections.computeIfAbsent(toKey(fontName, resolution), key -> new HashMap<>()).put(c, brightness);
+        dirty = true;
+    }
+
+    /**
+     * writes the cache to its file, if chars were added since it was last written. The file is replaced
+     * atomically where the file system supports it, so a concurrent process never reads half a file.
+     * A failure is logged once: the cache isn't written again until chars are added to it.
+     */
+    synchronized void save() {
+        if (file == null || !dirty) {
+            return;
+        }
+        dirty = false;
+        Path tmp = null;
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                for (Map.Entry<String, HashMap<Character, Double>> section : sections.entrySet()) {
+                    String key = section.getKey();
+                    int separator = key.lastIndexOf(KEY_SEPARATOR);
+                    byte[] fontName = key.substring(0, separator).getBytes(StandardCharsets.UTF_8);
+                    out.writeShort(fontName.length);
+                    out.write(fontName);
+                    out.writeShort(Integer.parseInt(key.substring(separator + 1)));
+                    out.writeInt(section.getValue().size());
+                    for (Map.Entry<Character, Double> entry : section.getValue().entrySet()) {
+                        out.writeChar(entry.getKey());
+                        out.writeDouble(entry.getValue());
+                    }
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Logger.getGlobal().warning(String.format("Failed to write glyph cache \"%s\"", file));
+        } finally {
+            deleteTempFile(tmp);
+        }
+    }
+
+    /**
+     * deletes the temp file of a save, if it's still there because the save failed.
+     *
+     * @param tmp the temp file, or null if it wasn't created.
+     */
+    private static void deleteTempFile(Path tmp) {
+        if (tmp == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(tmp);
+        } catch (IOException e) {
+            Logger.getGlobal().warning(String.format("Failed to delete \"%s\"", tmp));
+        }
+    }
+
+    /**
+     * maps the file and reads all of its sections. A file in an unknown format, or a corrupt one, is
+     * ignored as a whole (and replaced by the next save).
+     */
+    private void load() {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return;
+            }
+            HashMap<String, HashMap<Character, Double>> loaded = new HashMap<>();
+            while (buffer.hasRemaining()) {
+                byte[] fontName = new byte[Short.toUnsignedInt(buffer.getShort())];
+                buffer.get(fontName);
+                int resolution = Short.toUnsignedInt(buffer.getShort());
+                int count = buffer.getInt();
+                if (count < 0 || count > buffer.remaining() / ENTRY_BYTES) {
+                    throw new BufferUnderflowException();
+                }
+                HashMap<Character, Double> section = loaded.computeIfAbsent(
+                        toKey(new String(fontName, StandardCharsets.UTF_8), resolution), key -> new HashMap<>());
+                for (int i = 0; i < count; i++) {
+                    section.put(buffer.getChar(), buffer.getDouble());
+                }
+            }
+            sections.putAll(loaded);
+        } catch (IOException | BufferUnderflowException e) {
+            Logger.getGlobal().warning(String.format("Failed to read glyph cache \"%s\"", file));
+        }
+    }
+
+    /**
+     * @return the key of the section of the given font and resolution.
+     */
+    private static String toKey(String fontName, int resolution) {
+        return fontName + KEY_SEPARATOR + resolution;
+    }
+}
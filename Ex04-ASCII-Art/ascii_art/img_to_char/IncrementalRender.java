@@ -0,0 +1,155 @@
+package ascii_art.img_to_char;
+
+import image.CellGrid;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A package-private class of the package img_to_char.
+ * the state of the last render of a grid, kept so that a render with a slightly different char set only
+ * revisits the cells whose char could have changed: the brightness of every cell, the chars chosen for
+ * them, and the brightness index (and range of initial char brightness) they were chosen with.
+ * The cells are bucketed by brightness (a counting sort), so the cells whose brightness falls in an
+ * interval are found without scanning the whole grid.
+ */
+class IncrementalRender {
+    /**
+     * the number of brightness buckets [i / NUM_BUCKETS, (i + 1) / NUM_BUCKETS).
+     */
+    private static final int NUM_BUCKETS = 4096;
+    /**
+     * private final fields- grid, brightness (of each cell, row after row), chars (of each cell),
+     * bucketStart (the first index in cellsByBucket of each bucket, and the end of the last one),
+     * cellsByBucket (the cell indices, grouped by bucket).
+     */
+    private final CellGrid grid;
+    private final double[] brightness;
+    private final char[][] chars;
+    private final int[] bucketStart;
+    private final int[] cellsByBucket;
+    /**
+     * the brightness index the chars were chosen with, and the range of the initial brightness of its
+     * chars (which determines the normalization).
+     */
+    private double[] sortedBrightness;
+    private char[] sortedChars;
+    private double minBrightness;
+    private double maxBrightness;
+
+    /**
+     * constructor for IncrementalRender.
+     *
+     * @param grid       the grid that was rendered.
+     * @param brightness the brightness of each cell, row after row, all between 0 and 1.
+     * @param chars      the chars chosen for the cells.
+     */
+    IncrementalRender(CellGrid grid, double[] brightness, char[][] chars) {
+        this.grid = grid;
+        this.brightness = brightness;
+        this.chars = chars;
+        this.bucketStart = new int[NUM_BUCKETS + 1];
+        this.cellsByBucket = new int[brightness.length];
+        for (double value : brightness) {
+            bucketStart[bucketOf(value) + 1]++;
+        }
+        for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+            bucketStart[bucket + 1] += bucketStart[bucket];
+        }
+        int[] next = bucketStart.clone();
+        for (int cell = 0; cell < brightness.length; cell++) {
+            cellsByBucket[next[bucketOf(brightness[cell])]++] = cell;
+        }
+    }
+
+    /**
+     * records the brightness index the chars are now chosen with.
+     *
+     * @param sortedBrightness the distinct normalized brightness values, ascending.
+     * @param sortedChars      the char of each value.
+     * @param minBrightness    the minimal initial brightness of the char set.
+     * @param maxBrightness    the maximal initial brightness of the char set.
+     */
+    void setIndex(double[] sortedBrightness, char[] sortedChars, double minBrightness, double maxBrightness) {
+        this.sortedBrightness = sortedBrightness;
+        this.sortedChars = sortedChars;
+        this.minBrightness = minBrightness;
+        this.maxBrightness = maxBrightness;
+    }
+
+    /**
+     * @param grid          a grid.
+     * @param minBrightness the minimal initial brightness of a char set.
+     * @param maxBrightness the maximal initial brightness of a char set.
+     * @return true if the chars of this render can be updated to the given grid and char set: it's the
+     * same grid, and the char set is normalized the same way.
+     */
+    boolean canUpdate(CellGrid grid, double minBrightness, double maxBrightness) {
+        return this.grid.equals(grid) && this.minBrightness == minBrightness &&
+                this.maxBrightness == maxBrightness;
+    }
+
+    /**
+     * @return the chars of the cells, row after row.
+     */
+    char[][] getChars() {
+        return chars;
+    }
+
+    /**
+     * @return the previous brightness index, sorted.
+     */
+    double[] getSortedBrightness() {
+        return sortedBrightness;
+    }
+
+    /**
+     * @return the chars of the previous brightness index.
+     */
+    char[] getSortedChars() {
+        return sortedChars;
+    }
+
+    /**
+     * visits the cells whose brightness is in [low, high].
+     *
+     * @param low     the lowest brightness.
+     * @param high    the highest brightness.
+     * @param visitor called with the index of each cell (row * numCols + col).
+     */
+    void forEachCellInRange(double low, double high, IntConsumer visitor) {
+        for (int bucket = bucketOf(low); bucket <= bucketOf(high); bucket++) {
+            for (int i = bucketStart[bucket]; i < bucketStart[bucket + 1]; i++) {
+                int cell = cellsByBucket[i];
+                if (brightness[cell] >= low && brightness[cell] <= high) {
+                    visitor.accept(cell);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param cell the index of a cell.
+     * @return its brightness.
+     */
+    double getBrightness(int cell) {
+        return brightness[cell];
+    }
+
+    /**
+     * sets the char of a cell.
+     *
+     * @param cell the index of the cell.
+     * @param c    its new char.
+     */
+    void setChar(int cell, char c) {
+        chars[cell / grid.getNumCols()][cell % grid.getNumCols()] = c;
+    }
+
+    /**
+     * @param value a brightness, infinite values are clamped to the first or last bucket.
+     * @return its bucket.
+     */
+    private static int bucketOf(double value) {
+        return (int) Math.max(0, Math.min(NUM_BUCKETS - 1, Math.floor(value * NUM_BUCKETS)));
+    }
+}
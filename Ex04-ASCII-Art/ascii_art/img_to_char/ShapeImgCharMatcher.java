@@ -0,0 +1,369 @@
+package ascii_art.img_to_char;
+
+import image.CellGrid;
+import image.Image;
+import image.IntegralImage;
+import image.LuminancePlane;
+import image.LuminancePyramid;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+/**
+ * ShapeImgCharMatcher class, converts an image to ASCII chars by their shape and not only their
+ * brightness. Every glyph and every sub image is reduced to a patch of patchSize x patchSize brightness
+ * values, and each sub image gets the char whose patch is closest to its own (the smallest sum of
+ * squared differences), so edges and lines in the image are drawn with chars of the same direction.
+ * The glyph patches are normalized like the brightness of BrightnessImgCharMatcher, so the mean of a
+ * glyph's patch is its normalized brightness.
+ * The patches of the char set are kept in one flat float array, sorted by mean. The squared distance of
+ * two patches is the number of values times the squared difference of their means, plus the squared
+ * distance of the patches without their means, which is at least the squared difference of their norms.
+ * So the search starts from the glyph whose mean is closest to the sub image and moves outwards, stops
+ * as soon as the mean part alone is larger than the best distance found, skips the glyphs whose mean
+ * and norm parts together are, and stops every distance calculation as soon as it passes the best one.
+ */
+public class ShapeImgCharMatcher {
+    /**
+     * public and private static final fields- magic numbers.
+     */
+    public static final int DEFAULT_PATCH_SIZE = 4;
+    private static final int GLYPH_RESOLUTION = 16;
+    private static final double MAX_RGB_VAL = 255;
+    /**
+     * the mean bound is compared with a little slack, so float rounding never prunes the closest glyph.
+     */
+    private static final float PRUNE_SLACK = 1 - 1e-4f;
+    /**
+     * private final fields- img, font, patchSize (the side of the patches), patchLength (their number of
+     * values).
+     */
+    private final Image img;
+    private final String font;
+    private final int patchSize;
+    private final int patchLength;
+    /**
+     * the minimal number of output chars for which the rows are matched in parallel, and the height of
+     * each sub image divided by its width.
+     */
+    private int parallelThreshold;
+    private double aspectRatio;
+    /**
+     * the glyph matrix of the current char set, sorted by mean and then by char: the chars, the mean of
+     * each patch, the norm of each patch without its mean, and the patches themselves, one after the
+     * other.
+     */
+    private char[] glyphChars;
+    private float[] glyphMeans;
+    private float[] glyphNorms;
+    private float[] glyphPatches;
+
+    /**
+     * constructor for ShapeImgCharMatcher, with patches of DEFAULT_PATCH_SIZE.
+     *
+     * @param img  image to convert to AsciiChars.
+     * @param font the font of the chars.
+     */
+    public ShapeImgCharMatcher(Image img, String font) {
+        this(img, font, DEFAULT_PATCH_SIZE);
+    }
+
+    /**
+     * constructor for ShapeImgCharMatcher.
+     *
+     * @param img       image to convert to AsciiChars.
+     * @param font      the font of the chars.
+     * @param patchSize the side of the patches the glyphs and the sub images are compared by, a divisor
+     *                  of 16 (for example 4 or 8).
+     */
+    public ShapeImgCharMatcher(Image img, String font, int patchSize) {
+        if (patchSize < 1 || GLYPH_RESOLUTION % patchSize != 0) {
+            throw new IllegalArgumentException("patchSize must divide " + GLYPH_RESOLUTION);
+        }
+        this.img = img;
+        this.font = font;
+        this.patchSize = patchSize;
+        this.patchLength = patchSize * patchSize;
+        this.parallelThreshold = BrightnessImgCharMatcher.DEFAULT_PARALLEL_THRESHOLD;
+        this.aspectRatio = BrightnessImgCharMatcher.DEFAULT_ASPECT_RATIO;
+    }
+
+    /**
+     * sets from how many output chars the rows are matched in parallel over the common ForkJoinPool.
+     * Both modes produce exactly the same chars.
+     *
+     * @param parallelThreshold the minimal number of chars to match in parallel.
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 0) {
+            throw new IllegalArgumentException("parallelThreshold must not be negative");
+        }
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * sets the height of the sub image each char stands for, divided by its width (see
+     * BrightnessImgCharMatcher.setAspectRatio).
+     *
+     * @param aspectRatio the height of a sub image divided by its width, positive.
+     */
+    public void setAspectRatio(double aspectRatio) {
+        if (!(aspectRatio > 0)) {
+            throw new IllegalArgumentException("aspectRatio must be positive");
+        }
+        this.aspectRatio = aspectRatio;
+    }
+
+    /**
+     * this method converts the img to chars.
+     *
+     * @param numCharsInRow number of chars in a row.
+     * @param charSet       the chars to match the sub images with.
+     * @return 2-dimensional array of chars that represent the img in ascii chars.
+     */
+    public char[][] chooseChars(int numCharsInRow, Character[] charSet) {
+        if (charSet.length == 0) {
+            throw new IllegalArgumentException("the char set is empty");
+        }
+        buildGlyphMatrix(charSet);
+        CellGrid grid = CellGrid.withAspectRatio(img.getWidth(), img.getHeight(), numCharsInRow, aspectRatio);
+        int level = getPyramidLevel(grid);
+        IntegralImage integralImage = level < 0 ? img.getIntegralImage() : null;
+        LuminancePyramid pyramid = level < 0 ? null : img.getLuminancePyramid();
+        char[][] chars = new char[grid.getNumRows()][grid.getNumCols()];
+        IntStream rows = IntStream.range(0, grid.getNumRows());
+        if ((long) grid.getNumRows() * grid.getNumCols() >= parallelThreshold) {
+            rows = rows.parallel();
+        }
+        rows.forEach(row -> convertRow(chars[row], integralImage, pyramid, level, grid, row));
+        return chars;
+    }
+
+    /**
+     * @param grid the cells of the image.
+     * @return the level of the luminance pyramid whose pixels are the blocks of the patches of the cells,
+     * or -1 if these blocks aren't squares of a power of 2 pixels.
+     */
+    private int getPyramidLevel(CellGrid grid) {
+        int cellSize = grid.getSquareCellSize();
+        if (cellSize < patchSize || cellSize % patchSize != 0 || Integer.bitCount(cellSize / patchSize) != 1) {
+            return -1;
+        }
+        return Integer.numberOfTrailingZeros(cellSize / patchSize);
+    }
+
+    /**
+     * builds the glyph matrix of a char set: the patch of every char, downsampled from its 16x16 glyph
+     * and normalized so the means of the patches range from 0 to 1.
+     *
+     * @param charSet the chars.
+     */
+    private void buildGlyphMatrix(Character[] charSet) {
+        char[] chars = new char[charSet.length];
+        int numChars = 0;
+        for (Character c : new TreeSet<>(Arrays.asList(charSet))) {
+            chars[numChars++] = c;
+        }
+        int blockSize = GLYPH_RESOLUTION / patchSize;
+        double[][] patches = new double[numChars][patchLength];
+        double[] means = new double[numChars];
+        double minMean = Double.POSITIVE_INFINITY, maxMean = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < numChars; i++) {
+            long[] glyph = CharRenderer.getPackedImg(chars[i], GLYPH_RESOLUTION, font);
+            for (int y = 0; y < GLYPH_RESOLUTION; y++) {
+                for (int x = 0; x < GLYPH_RESOLUTION; x++) {
+                    if (CharRenderer.isSet(glyph, y * GLYPH_RESOLUTION + x)) {
+                        patches[i][(y / blockSize) * patchSize + x / blockSize]++;
+                    }
+                }
+            }
+            for (int j = 0; j < patchLength; j++) {
+                patches[i][j] /= blockSize * blockSize;
+                means[i] += patches[i][j] / patchLength;
+            }
+            minMean = Math.min(minMean, means[i]);
+            maxMean = Math.max(maxMean, means[i]);
+        }
+        double range = maxMean > minMean ? maxMean - minMean : 1;
+
+        Integer[] order = new Integer[numChars];
+        for (int i = 0; i < numChars; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> means[i]).thenComparing(i -> chars[i]));
+        glyphChars = new char[numChars];
+        glyphMeans = new float[numChars];
+        glyphNorms = new float[numChars];
+        glyphPatches = new float[numChars * patchLength];
+        for (int k = 0; k < numChars; k++) {
+            int i = order[k];
+            glyphChars[k] = chars[i];
+            float sum = 0;
+            for (int j = 0; j < patchLength; j++) {
+                float value = (float) ((patches[i][j] - minMean) / range);
+                glyphPatches[k * patchLength + j] = value;
+                sum += value;
+            }
+            glyphMeans[k] = sum / patchLength;
+            glyphNorms[k] = centeredNorm(glyphPatches, k * patchLength, glyphMeans[k]);
+        }
+    }
+
+    /**
+     * matches a single row of sub images with chars.
+     *
+     * @param rowChars      the output row to fill.
+     * @param integralImage the luminance summed-area table of img, or null if the pyramid is used.
+     * @param pyramid       the luminance pyramid of img, or null if the summed-area table is used.
+     * @param level         the level of the pyramid whose pixels are the blocks of the patches.
+     * @param grid          the cells of the image.
+     * @param row           the row index.
+     */
+    private void convertRow(char[] rowChars, IntegralImage integralImage, LuminancePyramid pyramid, int level,
+                            CellGrid grid, int row) {
+        float[] patch = new float[patchLength];
+        for (int col = 0; col < rowChars.length; col++) {
+            float mean = pyramid != null ? fillPatch(patch, pyramid, level, col, row) :
+                    fillPatch(patch, integralImage, grid.getColStart(col), grid.getRowStart(row),
+                            grid.getCellWidth(col), grid.getCellHeight(row));
+            rowChars[col] = glyphChars[findBestGlyph(patch, mean, centeredNorm(patch, 0, mean))];
+        }
+    }
+
+    /**
+     * downsamples a sub image to a patch: the average brightness (0-1) of each of its patchSize x
+     * patchSize blocks. A sub image smaller than the patch repeats its pixels.
+     *
+     * @param patch         the patch to fill.
+     * @param integralImage the luminance summed-area table of img.
+     * @param x             the col of the top left pixel of the sub image.
+     * @param y             the row of the top left pixel of the sub image.
+     * @param width         the width of the sub image.
+     * @param height        the height of the sub image.
+     * @return the mean of the patch.
+     */
+    private float fillPatch(float[] patch, IntegralImage integralImage, int x, int y, int width, int height) {
+        float sum = 0;
+        for (int row = 0; row < patchSize; row++) {
+            int top = y + row * height / patchSize;
+            int bottom = Math.max(y + (row + 1) * height / patchSize, top + 1);
+            for (int col = 0; col < patchSize; col++) {
+                int left = x + col * width / patchSize;
+                int right = Math.max(x + (col + 1) * width / patchSize, left + 1);
+                float value = (float) (integralImage.getBlockAverage(left, top, right - left, bottom - top) /
+                        MAX_RGB_VAL);
+                patch[row * patchSize + col] = value;
+                sum += value;
+            }
+        }
+        return sum / patchLength;
+    }
+
+    /**
+     * fills the patch of a cell from a level of the luminance pyramid, where each block of the patch is
+     * a single pixel. The values are those of the summed-area table overload (up to rounding), with a
+     * multiplication instead of three divisions per value.
+     *
+     * @param patch   the patch to fill.
+     * @param pyramid the luminance pyramid of img.
+     * @param level   the level whose pixels are the blocks of the patch.
+     * @param col     the col index of the cell.
+     * @param row     the row index of the cell.
+     * @return the mean of the patch.
+     */
+    private float fillPatch(float[] patch, LuminancePyramid pyramid, int level, int col, int row) {
+        double blockSize = 1 << level;
+        double toBrightness = 1 / (LuminancePlane.LUMINANCE_SCALE * blockSize * blockSize * MAX_RGB_VAL);
+        float sum = 0;
+        for (int y = 0; y < patchSize; y++) {
+            for (int x = 0; x < patchSize; x++) {
+                float value = (float) (pyramid.getScaledSum(level, col * patchSize + x, row * patchSize + y) *
+                        toBrightness);
+                patch[y * patchSize + x] = value;
+                sum += value;
+            }
+        }
+        return sum / patchLength;
+    }
+
+    /**
+     * @param values an array of patches.
+     * @param offset the index of the first value of a patch.
+     * @param mean   the mean of the patch.
+     * @return the norm of the patch after subtracting its mean from every value.
+     */
+    private float centeredNorm(float[] values, int offset, float mean) {
+        float sum = 0;
+        for (int i = offset; i < offset + patchLength; i++) {
+            float diff = values[i] - mean;
+            sum += diff * diff;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    /**
+     * finds the glyph whose patch is closest to the given one. Ties are broken by char value.
+     *
+     * @param patch the patch of a sub image.
+     * @param mean  the mean of the patch.
+     * @param norm  the norm of the patch without its mean.
+     * @return the index of the closest glyph in the glyph matrix.
+     */
+    private int findBestGlyph(float[] patch, float mean, float norm) {
+        int numGlyphs = glyphChars.length;
+        int above = Arrays.binarySearch(glyphMeans, mean);
+        if (above < 0) {
+            above = -above - 1;
+        }
+        int below = above - 1;
+        int best = -1;
+        float bestDistance = Float.POSITIVE_INFINITY;
+        //visits the glyphs by the distance of their mean from the mean of the patch
+        while (below >= 0 || above < numGlyphs) {
+            boolean takeAbove = below < 0 ||
+                    (above < numGlyphs && glyphMeans[above] - mean <= mean - glyphMeans[below]);
+            int glyph = takeAbove ? above++ : below--;
+            float meanDiff = glyphMeans[glyph] - mean;
+            float meanBound = patchLength * meanDiff * meanDiff;
+            if (meanBound * PRUNE_SLACK > bestDistance) {
+                break;
+            }
+            float normDiff = glyphNorms[glyph] - norm;
+            if ((meanBound + normDiff * normDiff) * PRUNE_SLACK > bestDistance) {
+                continue;
+            }
+            float distance = distance(patch, glyph, bestDistance);
+            if (distance < bestDistance || (distance == bestDistance && glyphChars[glyph] < glyphChars[best])) {
+                best = glyph;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * calculates the sum of squared differences between a patch and a glyph, giving up (with a partial
+     * sum larger than limit) after the first row of the patch that passes limit.
+     *
+     * @param patch the patch of a sub image.
+     * @param glyph the index of the glyph in the glyph matrix.
+     * @param limit the distance above which the exact value isn't needed.
+     * @return the distance, or a value larger than limit.
+     */
+    private float distance(float[] patch, int glyph, float limit) {
+        int offset = glyph * patchLength;
+        float sum = 0;
+        for (int row = 0; row < patchLength; row += patchSize) {
+            for (int i = row; i < row + patchSize; i++) {
+                float diff = patch[i] - glyphPatches[offset + i];
+                sum += diff * diff;
+            }
+            if (sum > limit) {
+                return sum;
+            }
+        }
+        return sum;
+    }
+}
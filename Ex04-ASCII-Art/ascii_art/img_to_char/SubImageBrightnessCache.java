@@ -0,0 +1,106 @@
+package ascii_art.img_to_char;
+
+import image.CellGrid;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A package-private class of the package img_to_char.
+ * a bounded cache of sub image brightness. It keeps one double[] per resolution (the grid of cells the
+ * image is divided into), indexed by row * numCols + col, and evicts the least recently used resolution once more
+ * than maxResolutions are cached. The average colors of the sub images, used by the color mode, are
+ * cached the same way, in their own int[] per resolution.
+ */
+class SubImageBrightnessCache {
+    /**
+     * marks a cell whose brightness wasn't calculated yet.
+     */
+    static final double MISSING = Double.NaN;
+    /**
+     * private final fields- resolutions, colors, hits, misses.
+     */
+    private final LinkedHashMap<CellGrid, double[]> resolutions;
+    private final LinkedHashMap<CellGrid, int[]> colors;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    /**
+     * constructor for SubImageBrightnessCache.
+     *
+     * @param maxResolutions the maximal number of resolutions to keep.
+     */
+    SubImageBrightnessCache(int maxResolutions) {
+        this.resolutions = new LinkedHashMap<>(maxResolutions, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CellGrid, double[]> eldest) {
+                return size() > maxResolutions;
+            }
+        };
+        this.colors = new LinkedHashMap<>(maxResolutions, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CellGrid, int[]> eldest) {
+                return size() > maxResolutions;
+            }
+        };
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * returns the brightness array of the given resolution, creating it (all MISSING) if it isn't cached.
+     * the caller fills the MISSING cells it calculates.
+     *
+     * @param grid the resolution.
+     * @return the brightness of each sub image of the resolution, MISSING for unknown ones.
+     */
+    synchronized double[] getResolution(CellGrid grid) {
+        double[] values = resolutions.get(grid);
+        if (values == null) {
+            values = new double[grid.getNumCols() * grid.getNumRows()];
+            Arrays.fill(values, MISSING);
+            resolutions.put(grid, values);
+        }
+        return values;
+    }
+
+    /**
+     * returns the average colors of the given resolution, computing them with calcColors if they aren't
+     * cached.
+     *
+     * @param grid       the resolution.
+     * @param calcColors computes the average color of each sub image of the resolution.
+     * @return the average color of each sub image of the resolution, as packed RGB ints.
+     */
+    synchronized int[] getColors(CellGrid grid, Supplier<int[]> calcColors) {
+        return colors.computeIfAbsent(grid, key -> calcColors.get());
+    }
+
+    /**
+     * records lookups of sub image brightness.
+     *
+     * @param numHits   number of cells found in the cache.
+     * @param numMisses number of cells that had to be calculated.
+     */
+    void record(int numHits, int numMisses) {
+        hits.add(numHits);
+        misses.add(numMisses);
+    }
+
+    /**
+     * @return the number of cells found in the cache so far.
+     */
+    long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of cells that had to be calculated so far.
+     */
+    long getMisses() {
+        return misses.sum();
+    }
+}
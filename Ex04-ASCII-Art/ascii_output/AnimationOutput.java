@@ -0,0 +1,22 @@
+package ascii_output;
+
+/**
+ * An object implementing this interface can output the frames of an ASCII
+ * animation, a 2D array of chars each, in some fashion.
+ */
+public interface AnimationOutput {
+    /**
+     * Start an animation of frames of height rows of width chars each, played at fps frames per second.
+     */
+    void begin(int width, int height, double fps);
+
+    /**
+     * Output the next frame. The frame may be reused by the caller once this returns.
+     */
+    void writeFrame(char[][] frame);
+
+    /**
+     * Finish the animation started by begin, after its last frame.
+     */
+    void end();
+}
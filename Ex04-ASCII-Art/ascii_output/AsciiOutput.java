@@ -2,12 +2,54 @@ package ascii_output;
 
 /**
  * An object implementing this interface can output a 2D array of chars
- * in some fashion.
+ * in some fashion, either all at once or row by row.
  * @author Dan Nirel
  */
 public interface AsciiOutput {
     /**
-     * Output the specified 2D array of chars
+     * Output the specified 2D array of chars. An array without rows is output as an empty one.
      */
-    void output(char[][] chars);
+    default void output(char[][] chars) {
+        begin(chars.length == 0 ? 0 : chars[0].length, chars.length);
+        for (char[] row : chars) {
+            writeRow(row);
+        }
+        end();
+    }
+
+    /**
+     * Output the specified 2D array of chars, each with the packed RGB color (0xRRGGBB) in the same
+     * place of colors. Outputs that can't show colors output only the chars. An array without rows is
+     * output as an empty one.
+     */
+    default void outputColored(char[][] chars, int[][] colors) {
+        begin(chars.length == 0 ? 0 : chars[0].length, chars.length);
+        for (int y = 0; y < chars.length; y++) {
+            writeRow(chars[y], colors[y]);
+        }
+        end();
+    }
+
+    /**
+     * Start an output of height rows of width chars each. Must be called before the first writeRow.
+     */
+    void begin(int width, int height);
+
+    /**
+     * Output the next row of chars. The row may be reused by the caller once this returns.
+     */
+    void writeRow(char[] row);
+
+    /**
+     * Output the next row of chars, each with the packed RGB color in the same place of colors.
+     * By default the colors are ignored.
+     */
+    default void writeRow(char[] row, int[] colors) {
+        writeRow(row);
+    }
+
+    /**
+     * Finish the output started by begin, after its last row.
+     */
+    void end();
 }
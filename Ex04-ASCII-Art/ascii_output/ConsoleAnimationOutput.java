@@ -0,0 +1,149 @@
+package ascii_output;
+
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Output the frames of an ASCII animation to the console, in place, at the animation's frame rate.
+ * The first frame is drawn whole. Later frames only move the cursor (with ANSI escapes) to the cells that
+ * changed and draw those, unless so many changed that drawing the whole frame is cheaper. If writing a
+ * frame took longer than a frame, the next one is drawn right away, so playback catches up.
+ */
+public class ConsoleAnimationOutput implements AnimationOutput {
+    private static final String CLEAR_SCREEN = "\u001b[2J";
+    private static final String CURSOR_HOME = "\u001b[H";
+    private static final String CURSOR_MOVE_START = "\u001b[";
+    private static final char CURSOR_MOVE_SEPARATOR = ';';
+    private static final char CURSOR_MOVE_END = 'H';
+    private static final char CHAR_SEPARATOR = ' ';
+    /**
+     * each char is followed by CHAR_SEPARATOR, so it takes this many columns of the console.
+     */
+    private static final int COLUMNS_PER_CHAR = 2;
+    private static final double NANOS_IN_SECOND = 1e9;
+    private static final long NANOS_IN_MILLI = 1000000;
+    /**
+     * a frame where more than this part of the cells changed is drawn whole.
+     */
+    private static final double MAX_DELTA_PART = 0.5;
+
+    private final ConsoleAsciiOutput console;
+    /**
+     * the frame on the screen, the time between frames and when the next frame is due, and how many
+     * frames were drawn whole or as a delta.
+     */
+    private char[][] shown;
+    private long frameNanos;
+    private long nextFrameTime;
+    private int fullFrames;
+    private int deltaFrames;
+
+    /**
+     * writes to stdout.
+     */
+    public ConsoleAnimationOutput() {
+        this.console = new ConsoleAsciiOutput();
+    }
+
+    /**
+     * writes to the given channel, encoded like the console.
+     */
+    public ConsoleAnimationOutput(WritableByteChannel channel) {
+        this.console = new ConsoleAsciiOutput(channel);
+    }
+
+    @Override
+    public void begin(int width, int height, double fps) {
+        frameNanos = (long) (NANOS_IN_SECOND / fps);
+        shown = null;
+        console.write(CLEAR_SCREEN);
+        nextFrameTime = System.nanoTime();
+    }
+
+    @Override
+    public void writeFrame(char[][] frame) {
+        waitForFrameTime();
+        StringBuilder text = new StringBuilder();
+        if (!FrameDiff.sameSize(shown, frame) ||
+                FrameDiff.countChanged(shown, frame) > MAX_DELTA_PART * frame.length * frame[0].length) {
+            appendFullFrame(text, frame);
+            shown = new char[frame.length][];
+            for (int row = 0; row < frame.length; row++) {
+                shown[row] = frame[row].clone();
+            }
+            fullFrames++;
+        } else {
+            FrameDiff.forEachChangedRun(shown, frame, (row, from, to) -> {
+                appendCursorMove(text, row, from);
+                for (int col = from; col < to; col++) {
+                    text.append(frame[row][col]).append(CHAR_SEPARATOR);
+                }
+                System.arraycopy(frame[row], from, shown[row], from, to - from);
+            });
+            //leave the cursor below the frame
+            appendCursorMove(text, frame.length, 0);
+            deltaFrames++;
+        }
+        console.write(text);
+    }
+
+    @Override
+    public void end() {
+    }
+
+    /**
+     * @return the number of frames drawn whole.
+     */
+    public int getFullFrames() {
+        return fullFrames;
+    }
+
+    /**
+     * @return the number of frames drawn as the cells that changed.
+     */
+    public int getDeltaFrames() {
+        return deltaFrames;
+    }
+
+    /**
+     * @return the number of bytes written to the console so far.
+     */
+    public long getBytesWritten() {
+        return console.getBytesWritten();
+    }
+
+    /**
+     * sleeps until the next frame is due, then sets when the one after it is due.
+     */
+    private void waitForFrameTime() {
+        long wait = nextFrameTime - System.nanoTime();
+        if (wait > 0) {
+            try {
+                Thread.sleep(wait / NANOS_IN_MILLI, (int) (wait % NANOS_IN_MILLI));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        nextFrameTime = Math.max(nextFrameTime, System.nanoTime() - frameNanos) + frameNanos;
+    }
+
+    /**
+     * appends a whole frame, drawn from the top left corner of the console.
+     */
+    private static void appendFullFrame(StringBuilder text, char[][] frame) {
+        text.append(CURSOR_HOME);
+        for (char[] row : frame) {
+            for (char c : row) {
+                text.append(c).append(CHAR_SEPARATOR);
+            }
+            text.append(System.lineSeparator());
+        }
+    }
+
+    /**
+     * appends a move of the cursor to the given cell (ANSI rows and columns start at 1).
+     */
+    private static void appendCursorMove(StringBuilder text, int row, int col) {
+        text.append(CURSOR_MOVE_START).append(row + 1).append(CURSOR_MOVE_SEPARATOR)
+                .append(col * COLUMNS_PER_CHAR + 1).append(CURSOR_MOVE_END);
+    }
+}
@@ -1,16 +1,160 @@
 package ascii_output;
 
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.logging.Logger;
+
 /**
  * Output a 2D array of chars to the console.
+ * The rows are collected into one frame, which is encoded and written to stdout with a single call on
+ * its file channel, bypassing the synchronized, line-flushed System.out. A frame larger than
+ * MAX_FRAME_CHARS is written in parts, so streaming a huge image still holds only a part of it.
+ * Colored rows use ANSI 24-bit color escapes, one per run of neighbouring chars of the same color.
  * @author Dan Nirel
  */public class ConsoleAsciiOutput implements AsciiOutput{
+    private static final int MAX_FRAME_CHARS = 1 << 20;
+    private static final String CHAR_SEPARATOR = " ";
+    /**
+     * ANSI escape sequences: a 24-bit foreground color (followed by "r;g;bm"), and a reset.
+     */
+    private static final String ANSI_COLOR_START = "\u001b[38;2;";
+    private static final String ANSI_RESET = "\u001b[0m";
+    private static final char ANSI_SEPARATOR = ';';
+    private static final char ANSI_END = 'm';
+    private static final int BYTE_MASK = 0xFF;
+    private static final int RED_SHIFT = 16;
+    private static final int GREEN_SHIFT = 8;
+    private static final double NANOS_IN_MILLI = 1e6;
+
+    private final WritableByteChannel channel;
+    private final Charset charset;
+    /**
+     * the rows written since the frame was last sent, and the totals of everything sent so far.
+     */
+    private StringBuilder frame;
+    private long bytesWritten;
+    private long writeNanos;
+    /**
+     * whether end logs the totals.
+     */
+    private boolean reportWrites;
+
+    /**
+     * writes to stdout.
+     */
+    public ConsoleAsciiOutput() {
+        //not closed: closing it would close stdout
+        this(new FileOutputStream(FileDescriptor.out).getChannel());
+    }
+
+    /**
+     * writes to the given channel, encoded like the console.
+     */
+    public ConsoleAsciiOutput(WritableByteChannel channel) {
+        this.channel = channel;
+        this.charset = Charset.defaultCharset();
+        this.frame = new StringBuilder();
+    }
+
     @Override
-    public void output(char[][] chars) {
-        for (int y = 0; y < chars.length ; y++) {
-            for (int x = 0; x < chars[y].length; x++) {
-                System.out.print(chars[y][x] + " ");
+    public void begin(int width, int height) {
+        long frameChars = (long) height * (width * (1 + CHAR_SEPARATOR.length()) + System.lineSeparator().length());
+        frame = new StringBuilder((int) Math.min(frameChars, MAX_FRAME_CHARS));
+    }
+
+    @Override
+    public void writeRow(char[] row) {
+        for (char c : row) {
+            frame.append(c).append(CHAR_SEPARATOR);
+        }
+        frame.append(System.lineSeparator());
+        if (frame.length() >= MAX_FRAME_CHARS) {
+            sendFrame();
+        }
+    }
+
+    @Override
+    public void writeRow(char[] row, int[] colors) {
+        for (int x = 0; x < row.length; x++) {
+            if (x == 0 || colors[x] != colors[x - 1]) {
+                frame.append(ANSI_COLOR_START)
+                        .append((colors[x] >> RED_SHIFT) & BYTE_MASK).append(ANSI_SEPARATOR)
+                        .append((colors[x] >> GREEN_SHIFT) & BYTE_MASK).append(ANSI_SEPARATOR)
+                        .append(colors[x] & BYTE_MASK).append(ANSI_END);
+            }
+            frame.append(row[x]).append(CHAR_SEPARATOR);
+        }
+        frame.append(ANSI_RESET).append(System.lineSeparator());
+        if (frame.length() >= MAX_FRAME_CHARS) {
+            sendFrame();
+        }
+    }
+
+    /**
+     * sends the rest of the frame. If reportWrites is on, then logs the bytes written and the write time.
+     */
+    @Override
+    public void end() {
+        sendFrame();
+        if (reportWrites) {
+            Logger.getGlobal().info(String.format("Wrote %d bytes to the console in %.1f ms", bytesWritten,
+                    writeNanos / NANOS_IN_MILLI));
+        }
+    }
+
+    /**
+     * turns on or off logging the bytes written and the write time (so far) at the end of each output.
+     */
+    public void setReportWrites(boolean reportWrites) {
+        this.reportWrites = reportWrites;
+    }
+
+    /**
+     * @return the number of bytes written to the console so far.
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * @return the time spent writing to the console so far, in nanoseconds.
+     */
+    public long getWriteNanos() {
+        return writeNanos;
+    }
+
+    /**
+     * sends the frame in one call and empties it.
+     */
+    private void sendFrame() {
+        if (frame.length() == 0) {
+            return;
+        }
+        write(frame);
+        frame.setLength(0);
+    }
+
+    /**
+     * encodes text and writes it in one call, after whatever System.out still buffers.
+     *
+     * @param text the chars to write.
+     */
+    void write(CharSequence text) {
+        long start = System.nanoTime();
+        ByteBuffer bytes = charset.encode(CharBuffer.wrap(text));
+        System.out.flush();
+        try {
+            while (bytes.hasRemaining()) {
+                bytesWritten += channel.write(bytes);
             }
-            System.out.println();
+        } catch (IOException e) {
+            Logger.getGlobal().severe("Failed to write to the console");
         }
+        writeNanos += System.nanoTime() - start;
     }
 }
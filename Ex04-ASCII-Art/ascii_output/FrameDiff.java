@@ -0,0 +1,85 @@
+package ascii_output;
+
+/**
+ * A package-private class of the package ascii_output.
+ * finds the chars that changed between two frames of an animation, as runs of neighbouring cells of a
+ * row. Unchanged gaps of up to MAX_GAP cells between changed cells are included in the run around them,
+ * since restating a few chars is cheaper than starting a new run.
+ */
+class FrameDiff {
+    /**
+     * the longest gap of unchanged cells that is merged into a run.
+     */
+    static final int MAX_GAP = 4;
+
+    /**
+     * a run of cells [from, to) of a row.
+     */
+    @FunctionalInterface
+    interface RunVisitor {
+        void visit(int row, int from, int to);
+    }
+
+    /**
+     * counts the cells that changed between two frames of the same size.
+     *
+     * @param previous the previous frame.
+     * @param current  the current frame.
+     * @return the number of cells whose char changed.
+     */
+    static int countChanged(char[][] previous, char[][] current) {
+        int changed = 0;
+        for (int row = 0; row < current.length; row++) {
+            for (int col = 0; col < current[row].length; col++) {
+                if (previous[row][col] != current[row][col]) {
+                    changed++;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * visits the runs of changed cells of two frames of the same size, row by row, left to right.
+     *
+     * @param previous the previous frame.
+     * @param current  the current frame.
+     * @param visitor  called with each run.
+     */
+    static void forEachChangedRun(char[][] previous, char[][] current, RunVisitor visitor) {
+        for (int row = 0; row < current.length; row++) {
+            int runStart = -1, runEnd = -1;
+            for (int col = 0; col < current[row].length; col++) {
+                if (previous[row][col] == current[row][col]) {
+                    continue;
+                }
+                if (runStart >= 0 && col - runEnd > MAX_GAP) {
+                    visitor.visit(row, runStart, runEnd);
+                    runStart = -1;
+                }
+                if (runStart < 0) {
+                    runStart = col;
+                }
+                runEnd = col + 1;
+            }
+            if (runStart >= 0) {
+                visitor.visit(row, runStart, runEnd);
+            }
+        }
+    }
+
+    /**
+     * @return true if the frames have the same number of rows and of chars in each row.
+     */
+    static boolean sameSize(char[][] previous, char[][] current) {
+        if (previous == null || previous.length != current.length) {
+            return false;
+        }
+        for (int row = 0; row < current.length; row++) {
+            if (previous[row].length != current[row].length) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,180 @@
+package ascii_output;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.logging.Logger;
+
+/**
+ * Output the frames of an ASCII animation to an HTML page that plays them in a loop.
+ * The frames are written as they arrive, as a JavaScript array: the first frame whole, and every later
+ * frame as the runs of cells that changed since the one before it. The page applies the changes to its
+ * copy of the cells at the animation's frame rate.
+ */
+public class HtmlAnimationOutput implements AnimationOutput {
+    private static final double BASE_LINE_SPACING = 0.8;
+    private static final double BASE_FONT_SIZE = 150.0;
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    private static final String HEADER =
+            "<!DOCTYPE html>\n" +
+            "<html>\n" +
+            "<body style=\"" +
+                "\tCOLOR:#000000;" +
+                "\tTEXT-ALIGN:center;" +
+                "\tFONT-SIZE:1px;\">\n" +
+            "<p id=\"frame\" style=\"" +
+                "\twhite-space:pre;" +
+                "\tFONT-FAMILY:%s;" +
+                "\tFONT-SIZE:%frem;" +
+                "\tLETTER-SPACING:0.15em;" +
+                "\tLINE-HEIGHT:%fem;\"></p>\n" +
+            "<script>\n" +
+            "var width = %d, height = %d, fps = %s;\n" +
+            "var frames = [\n";
+    private static final String FOOTER =
+            "];\n" +
+            "var cells = new Array(width * height).fill(\" \");\n" +
+            "var current = 0;\n" +
+            "function show() {\n" +
+            "  var changes = frames[current];\n" +
+            "  for (var i = 0; i < changes.length; i++) {\n" +
+            "    var start = changes[i][0], text = changes[i][1];\n" +
+            "    for (var j = 0; j < text.length; j++) {\n" +
+            "      cells[start + j] = text[j];\n" +
+            "    }\n" +
+            "  }\n" +
+            "  var rows = [];\n" +
+            "  for (var row = 0; row < height; row++) {\n" +
+            "    rows.push(cells.slice(row * width, (row + 1) * width).join(\"\"));\n" +
+            "  }\n" +
+            "  document.getElementById(\"frame\").textContent = rows.join(\"\\n\");\n" +
+            "  current = (current + 1) % frames.length;\n" +
+            "}\n" +
+            "if (frames.length > 0) {\n" +
+            "  show();\n" +
+            "  setInterval(show, 1000 / fps);\n" +
+            "}\n" +
+            "</script>\n" +
+            "</body>\n" +
+            "</html>\n";
+
+    private final String fontName;
+    private final String filename;
+    /**
+     * the file being written, between begin and end (null if there is none, or writing it failed), the
+     * size of the frames, and the previous frame.
+     */
+    private Writer writer;
+    private int width;
+    private int height;
+    private char[][] previous;
+
+    public HtmlAnimationOutput(String filename, String fontName) {
+        this.fontName = fontName;
+        this.filename = filename;
+    }
+
+    @Override
+    public void begin(int width, int height, double fps) {
+        this.width = width;
+        this.height = height;
+        previous = null;
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(Paths.get(filename)),
+                    Charset.defaultCharset()), DEFAULT_BUFFER_SIZE);
+            writer.write(String.format(HEADER, fontName, BASE_FONT_SIZE / width, BASE_LINE_SPACING, width, height,
+                    Double.toString(fps)));
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    /**
+     * writes the next frame: whole if it's the first one, otherwise the cells that changed.
+     * Frames of another size than the one given to begin are skipped.
+     */
+    @Override
+    public void writeFrame(char[][] frame) {
+        if (writer == null) {
+            return;
+        }
+        if (frame.length != height || frame[0].length != width) {
+            Logger.getGlobal().warning("Skipped a frame of a different size");
+            return;
+        }
+        StringBuilder text = new StringBuilder("[");
+        if (previous == null) {
+            previous = new char[height][width];
+            for (int row = 0; row < height; row++) {
+                appendRun(text, frame, row, 0, width);
+            }
+        } else {
+            FrameDiff.forEachChangedRun(previous, frame, (row, from, to) -> appendRun(text, frame, row, from, to));
+        }
+        text.append("],\n");
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(frame[row], 0, previous[row], 0, width);
+        }
+        try {
+            writer.append(text);
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    @Override
+    public void end() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(FOOTER);
+            writer.close();
+            writer = null;
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    /**
+     * appends a run of cells as a JavaScript array: the index of its first cell (row * width + col), and
+     * its chars as a string.
+     */
+    private void appendRun(StringBuilder text, char[][] frame, int row, int from, int to) {
+        if (text.length() > 1) {
+            text.append(',');
+        }
+        text.append('[').append(row * width + from).append(",\"");
+        for (int col = from; col < to; col++) {
+            char c = frame[row][col];
+            if (c == '"' || c == '\\') {
+                text.append('\\').append(c);
+            } else if (c == '<' || c == '>' || c == '&' || c < ' ') {
+                //so that the script can't be closed by the chars
+                text.append(String.format("\\u%04x", (int) c));
+            } else {
+                text.append(c);
+            }
+        }
+        text.append("\"]");
+    }
+
+    /**
+     * logs a failed write and drops the rest of the output.
+     */
+    private void fail() {
+        Logger.getGlobal().severe(String.format("Failed to write to \"%s\"", filename));
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+                //already reported
+            }
+            writer = null;
+        }
+    }
+}
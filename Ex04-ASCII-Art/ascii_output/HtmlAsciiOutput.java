@@ -1,29 +1,84 @@
 package ascii_output;
 
 import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Output a 2D array of chars to an HTML file viewable in a web browser.
+ * The file is written row by row, so a row can be written as soon as it's rendered.
+ * A filename ending with ".gz" is written GZIP-compressed.
+ * Colored rows are written as spans, one per run of neighbouring chars of the same color.
  * @author Dan Nirel
  */
 public class HtmlAsciiOutput implements AsciiOutput {
     private static final double BASE_LINE_SPACING = 0.8;
     private static final double BASE_FONT_SIZE = 150.0;
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final int ASCII_SIZE = 128;
+    /**
+     * the HTML representation of each ascii char that needs escaping, null for the others.
+     */
+    private static final char[][] ESCAPES = new char[ASCII_SIZE][];
+    private static final int MAX_ESCAPE_LENGTH = 5;
+    /**
+     * a span of chars of one color: SPAN_START, the color as 6 hex digits, SPAN_COLOR_END, the chars, and
+     * SPAN_END.
+     */
+    private static final char[] SPAN_START = "<span style=\"color:#".toCharArray();
+    private static final char[] SPAN_COLOR_END = "\">".toCharArray();
+    private static final char[] SPAN_END = "</span>".toCharArray();
+    private static final int HEX_DIGITS = 6;
+    private static final int MAX_SPAN_LENGTH =
+            SPAN_START.length + HEX_DIGITS + SPAN_COLOR_END.length + SPAN_END.length;
+    private static final int HEX_RADIX = 16;
+    private static final int BITS_PER_HEX_DIGIT = 4;
+
+    static {
+        ESCAPES['<'] = "&lt;".toCharArray();
+        ESCAPES['>'] = "&gt;".toCharArray();
+        ESCAPES['&'] = "&amp;".toCharArray();
+    }
 
     private final String fontName;
     private final String filename;
+    private final int bufferSize;
+    /**
+     * the file being written, between begin and end (null if there is none, or writing it failed), and
+     * the buffer rows are escaped into.
+     */
+    private Writer writer;
+    private char[] rowBuffer;
 
     public HtmlAsciiOutput(String filename, String fontName) {
+        this(filename, fontName, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize the size, in chars, of the buffer between the escaped rows and the file
+     *                   (and in bytes, of the compressor's buffer).
+     */
+    public HtmlAsciiOutput(String filename, String fontName, int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("non positive buffer size");
+        }
         this.fontName = fontName;
         this.filename = filename;
+        this.bufferSize = bufferSize;
     }
 
     @Override
-    public void output(char[][] chars) {
-        try(BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
+    public void begin(int width, int height) {
+        try {
+            writer = openWriter();
             writer.write(String.format(
                 "<!DOCTYPE html>\n"+
                 "<html>\n"+
@@ -37,27 +92,164 @@ public class HtmlAsciiOutput implements AsciiOutput {
                     "\tFONT-SIZE:%frem;"+
                     "\tLETTER-SPACING:0.15em;"+
                     "\tLINE-HEIGHT:%fem;\">\n",
-                    fontName, BASE_FONT_SIZE/chars[0].length, BASE_LINE_SPACING));
-
-            for(int y = 0 ; y < chars.length ; y++) {
-                for (int x = 0; x < chars[y].length ; x++) {
-                    String htmlRep;
-                    switch(chars[y][x]) {
-                        case '<': htmlRep = "&lt;";  break;
-                        case '>': htmlRep = "&gt;";  break;
-                        case '&': htmlRep = "&amp;"; break;
-                        default:  htmlRep = String.valueOf(chars[y][x]);
-                    }
-                    writer.write(htmlRep);
-                }
-                writer.newLine();
-            }
+                    fontName, BASE_FONT_SIZE/Math.max(width, 1), BASE_LINE_SPACING));
+            rowBuffer = new char[width * MAX_ESCAPE_LENGTH + System.lineSeparator().length()];
+        } catch(IOException e) {
+            fail();
+        }
+    }
+
+    @Override
+    public void writeRow(char[] row) {
+        if (writer == null) {
+            return;
+        }
+        int maxRowLength = row.length * MAX_ESCAPE_LENGTH + System.lineSeparator().length();
+        if (rowBuffer.length < maxRowLength) {
+            rowBuffer = new char[maxRowLength];
+        }
+        try {
+            writer.write(rowBuffer, 0, escapeRow(row, rowBuffer));
+        } catch(IOException e) {
+            fail();
+        }
+    }
+
+    @Override
+    public void writeRow(char[] row, int[] colors) {
+        if (writer == null) {
+            return;
+        }
+        int maxRowLength = row.length * (MAX_ESCAPE_LENGTH + MAX_SPAN_LENGTH) + System.lineSeparator().length();
+        if (rowBuffer.length < maxRowLength) {
+            rowBuffer = new char[maxRowLength];
+        }
+        try {
+            writer.write(rowBuffer, 0, escapeColoredRow(row, colors, rowBuffer));
+        } catch(IOException e) {
+            fail();
+        }
+    }
+
+    @Override
+    public void end() {
+        if (writer == null) {
+            return;
+        }
+        try {
             writer.write(
                 "</p>\n"+
                 "</body>\n"+
                 "</html>\n");
+            writer.close();
+            writer = null;
         } catch(IOException e) {
-            Logger.getGlobal().severe(String.format("Failed to write to \"%s\"", filename));
+            fail();
+        }
+    }
+
+    /**
+     * logs a failed write and drops the rest of the output.
+     */
+    private void fail() {
+        Logger.getGlobal().severe(String.format("Failed to write to \"%s\"", filename));
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch(IOException ignored) {
+                //already reported
+            }
+            writer = null;
+        }
+    }
+
+    /**
+     * opens the file for writing, through a GZIP compressor if its name ends with GZIP_SUFFIX.
+     */
+    private Writer openWriter() throws IOException {
+        OutputStream out = Files.newOutputStream(Paths.get(filename));
+        if (filename.endsWith(GZIP_SUFFIX)) {
+            try {
+                out = new GZIPOutputStream(out, bufferSize);
+            } catch (IOException e) {
+                out.close();
+                throw e;
+            }
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset()), bufferSize);
+    }
+
+    /**
+     * copies a row to buffer, escaping the chars HTML reserves, followed by a line separator.
+     * @param row the chars of the row.
+     * @param buffer large enough for every char of the row to be escaped.
+     * @return the number of chars written to buffer.
+     */
+    private static int escapeRow(char[] row, char[] buffer) {
+        int length = escapeChars(row, 0, row.length, buffer, 0);
+        return appendLineSeparator(buffer, length);
+    }
+
+    /**
+     * copies a row to buffer like escapeRow, wrapping every run of chars of the same color in a span.
+     * @param row the chars of the row.
+     * @param colors the packed RGB color of each char.
+     * @param buffer large enough for every char of the row to be escaped and in its own span.
+     * @return the number of chars written to buffer.
+     */
+    private static int escapeColoredRow(char[] row, int[] colors, char[] buffer) {
+        int length = 0;
+        int runStart = 0;
+        while (runStart < row.length) {
+            int runEnd = runStart + 1;
+            while (runEnd < row.length && colors[runEnd] == colors[runStart]) {
+                runEnd++;
+            }
+            length = copy(SPAN_START, buffer, length);
+            for (int shift = (HEX_DIGITS - 1) * BITS_PER_HEX_DIGIT; shift >= 0; shift -= BITS_PER_HEX_DIGIT) {
+                buffer[length++] = Character.forDigit((colors[runStart] >> shift) & (HEX_RADIX - 1), HEX_RADIX);
+            }
+            length = copy(SPAN_COLOR_END, buffer, length);
+            length = escapeChars(row, runStart, runEnd, buffer, length);
+            length = copy(SPAN_END, buffer, length);
+            runStart = runEnd;
+        }
+        return appendLineSeparator(buffer, length);
+    }
+
+    /**
+     * copies the chars [from, to) of row to buffer, escaping the chars HTML reserves.
+     * @return the length of buffer after the copied chars.
+     */
+    private static int escapeChars(char[] row, int from, int to, char[] buffer, int length) {
+        for (int i = from; i < to; i++) {
+            char c = row[i];
+            char[] escape = c < ASCII_SIZE ? ESCAPES[c] : null;
+            if (escape == null) {
+                buffer[length++] = c;
+            } else {
+                length = copy(escape, buffer, length);
+            }
         }
+        return length;
+    }
+
+    /**
+     * copies chars to buffer at the given length.
+     * @return the length of buffer after the copied chars.
+     */
+    private static int copy(char[] chars, char[] buffer, int length) {
+        System.arraycopy(chars, 0, buffer, length, chars.length);
+        return length + chars.length;
+    }
+
+    /**
+     * appends a line separator to buffer at the given length.
+     * @return the length of buffer after the line separator.
+     */
+    private static int appendLineSeparator(char[] buffer, int length) {
+        String lineSeparator = System.lineSeparator();
+        lineSeparator.getChars(0, lineSeparator.length(), buffer, length);
+        return length + lineSeparator.length();
     }
 }
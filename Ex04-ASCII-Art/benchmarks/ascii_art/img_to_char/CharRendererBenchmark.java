@@ -0,0 +1,65 @@
+package ascii_art.img_to_char;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of CharRenderer: getting the glyphs of a whole char set, as boolean[][] (getImg) and as the
+ * cached bitsets (getPackedImg). Glyphs are rendered once per process, so these measure the cached path.
+ * getImgCold clears the cache first, so every glyph is rasterized again through Graphics2D, as on the
+ * first render of a process.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dascii_art.glyphCache=target/benchmarks/glyph_brightness.bin")
+public class CharRendererBenchmark {
+    private static final String FONT = "Courier New";
+    private static final int RESOLUTION = 16;
+
+    @Param({"10", "95"})
+    public int charsetSize;
+
+    private Character[] charSet;
+
+    @Setup
+    public void setup() {
+        charSet = ChooseCharsBenchmark.charSet(charsetSize);
+    }
+
+    @Benchmark
+    public void getImg(Blackhole blackhole) {
+        for (Character c : charSet) {
+            blackhole.consume(CharRenderer.getImg(c, RESOLUTION, FONT));
+        }
+    }
+
+    @Benchmark
+    public void getImgCold(Blackhole blackhole) {
+        CharRenderer.clearCache();
+        for (Character c : charSet) {
+            blackhole.consume(CharRenderer.getImg(c, RESOLUTION, FONT));
+        }
+    }
+
+    @Benchmark
+    public void getPackedImg(Blackhole blackhole) {
+        for (Character c : charSet) {
+            blackhole.consume(CharRenderer.getPackedImg(c, RESOLUTION, FONT));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ascii_art.img_to_char;
+
+import image.Image;
+import image.SyntheticImages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of BrightnessImgCharMatcher.chooseChars. The image (and so its luminance plane and summed-area
+ * table) is shared by all invocations. "cold" uses a new matcher each time, so every sub image brightness
+ * is computed, "warm" reuses one matcher, so they come from its cache. chooseColorsCold measures the
+ * extra work of the color mode: the average colors of all sub images, computed by a new matcher.
+ * chooseCharsIncremental is the Shell's case: an incremental matcher, alternately rendering the char set
+ * with and without one char.
+ * With 128 chars in a row the cells are squares of a power of 2 pixels and are read from the luminance
+ * pyramid of the image, with 100 they are summed from the summed-area table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g",
+        "-Dascii_art.glyphCache=target/benchmarks/glyph_brightness.bin"})
+public class ChooseCharsBenchmark {
+    private static final String FONT = "Courier New";
+
+    @Param({"256", "2048", "8192"})
+    public int size;
+
+    @Param({"10", "95"})
+    public int charsetSize;
+
+    @Param({"100", "128"})
+    public int charsInRow;
+
+    private Image img;
+    private Character[] charSet;
+    private BrightnessImgCharMatcher warmMatcher;
+    private BrightnessImgCharMatcher incrementalMatcher;
+    private Character[] smallerCharSet;
+    private boolean smaller;
+
+    @Setup
+    public void setup() {
+        img = SyntheticImages.createImage(size);
+        charSet = charSet(charsetSize);
+        warmMatcher = new BrightnessImgCharMatcher(img, FONT);
+        warmMatcher.chooseChars(charsInRow, charSet);
+        //drops a char from the middle, so the brightness range (and the normalization) stays the same
+        smallerCharSet = new Character[charSet.length - 1];
+        System.arraycopy(charSet, 0, smallerCharSet, 0, charSet.length / 2);
+        System.arraycopy(charSet, charSet.length / 2 + 1, smallerCharSet, charSet.length / 2,
+                charSet.length - charSet.length / 2 - 1);
+        incrementalMatcher = new BrightnessImgCharMatcher(img, FONT);
+        incrementalMatcher.setIncremental(true);
+        incrementalMatcher.chooseChars(charsInRow, charSet);
+    }
+
+    /**
+     * @param size 10 for the digits, otherwise the first size printable ascii chars.
+     * @return the char set of the given size.
+     */
+    static Character[] charSet(int size) {
+        Character[] chars = new Character[size];
+        char first = size == 10 ? '0' : ' ';
+        for (int i = 0; i < size; i++) {
+            chars[i] = (char) (first + i);
+        }
+        return chars;
+    }
+
+    @Benchmark
+    public char[][] chooseCharsCold() {
+        return new BrightnessImgCharMatcher(img, FONT).chooseChars(charsInRow, charSet);
+    }
+
+    @Benchmark
+    public int[][] chooseColorsCold() {
+        return new BrightnessImgCharMatcher(img, FONT).chooseColors(charsInRow);
+    }
+
+    @Benchmark
+    public char[][] chooseCharsIncremental() {
+        smaller = !smaller;
+        return incrementalMatcher.chooseChars(charsInRow, smaller ? smallerCharSet : charSet);
+    }
+
+    @Benchmark
+    public char[][] chooseCharsWarm() {
+        return warmMatcher.chooseChars(charsInRow, charSet);
+    }
+}
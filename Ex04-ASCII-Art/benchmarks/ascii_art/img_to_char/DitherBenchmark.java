@@ -0,0 +1,64 @@
+package ascii_art.img_to_char;
+
+import image.Image;
+import image.SyntheticImages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the dithering modes of BrightnessImgCharMatcher.chooseChars against plain matching (NONE).
+ * The matcher is reused, so the sub image brightness comes from its cache and only the choice of the
+ * chars is measured. "parallel" splits the rows over the common ForkJoinPool (a wavefront for
+ * FLOYD_STEINBERG), otherwise everything runs on the calling thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g",
+        "-Dascii_art.glyphCache=target/benchmarks/glyph_brightness.bin"})
+public class DitherBenchmark {
+    private static final String FONT = "Courier New";
+
+    @Param({"2048", "8192"})
+    public int size;
+
+    @Param({"128", "1024"})
+    public int charsInRow;
+
+    @Param({"NONE", "ORDERED", "FLOYD_STEINBERG"})
+    public DitherMode mode;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private BrightnessImgCharMatcher matcher;
+    private Character[] charSet;
+
+    @Setup
+    public void setup() {
+        Image img = SyntheticImages.createImage(size);
+        charSet = ChooseCharsBenchmark.charSet(10);
+        matcher = new BrightnessImgCharMatcher(img, FONT);
+        matcher.setDitherMode(mode);
+        matcher.setParallelThreshold(parallel ? 0 : Integer.MAX_VALUE);
+        matcher.chooseChars(charsInRow, charSet);
+    }
+
+    @Benchmark
+    public char[][] chooseChars() {
+        return matcher.chooseChars(charsInRow, charSet);
+    }
+}
@@ -0,0 +1,71 @@
+package ascii_art.img_to_char;
+
+import image.Image;
+import image.SyntheticImages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of ShapeImgCharMatcher.chooseChars against the brightness matcher. Both use a new matcher
+ * each time on a shared image (so its luminance pyramid and summed-area table are built once, in setup),
+ * and the matching runs on the calling thread. patchSize 0 stands for the brightness matcher.
+ * 128 and 512 chars in a row give square cells of a power of 2 pixels, which are matched over the
+ * pyramid; 500 gives cells of 4 and 5 pixels, which are matched over the summed-area table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g",
+        "-Dascii_art.glyphCache=target/benchmarks/glyph_brightness.bin"})
+public class ShapeMatcherBenchmark {
+    private static final String FONT = "Courier New";
+
+    @Param({"2048"})
+    public int size;
+
+    @Param({"10", "95"})
+    public int charsetSize;
+
+    @Param({"128", "500", "512"})
+    public int charsInRow;
+
+    @Param({"0", "4", "8"})
+    public int patchSize;
+
+    private Image img;
+    private Character[] charSet;
+
+    @Setup
+    public void setup() {
+        img = SyntheticImages.createImage(size);
+        charSet = ChooseCharsBenchmark.charSet(charsetSize);
+        img.getLuminancePyramid();
+        img.getIntegralImage();
+        chooseChars();
+    }
+
+    @Benchmark
+    public char[][] chooseChars() {
+        if (patchSize == 0) {
+            BrightnessImgCharMatcher matcher = new BrightnessImgCharMatcher(img, FONT);
+            matcher.setParallelThreshold(Integer.MAX_VALUE);
+            return matcher.chooseChars(charsInRow, charSet);
+        }
+        ShapeImgCharMatcher matcher = new ShapeImgCharMatcher(img, FONT, patchSize);
+        matcher.setParallelThreshold(Integer.MAX_VALUE);
+        return matcher.chooseChars(charsInRow, charSet);
+    }
+}
@@ -0,0 +1,91 @@
+package ascii_output;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of ConsoleAsciiOutput.output against the char by char System.out.print loop it replaced.
+ * Both write to sinks that discard the bytes, so only the formatting and the write calls are measured,
+ * not the terminal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g",
+        "-Dascii_art.glyphCache=target/benchmarks/glyph_brightness.bin"})
+public class ConsoleAsciiOutputBenchmark {
+    private static final int PIXELS_PER_CHAR = 4;
+    private static final long SEED = 42;
+
+    @Param({"256", "2048", "8192"})
+    public int size;
+
+    private char[][] chars;
+    private WritableByteChannel nullChannel;
+    private PrintStream nullStream;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(SEED);
+        int numChars = size / PIXELS_PER_CHAR;
+        chars = new char[numChars][numChars];
+        for (char[] row : chars) {
+            for (int x = 0; x < row.length; x++) {
+                row[x] = (char) (' ' + random.nextInt('~' - ' ' + 1));
+            }
+        }
+        nullChannel = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) {
+                int length = src.remaining();
+                src.position(src.limit());
+                return length;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        nullStream = new PrintStream(OutputStream.nullOutputStream(), true);
+    }
+
+    @Benchmark
+    public long output() {
+        ConsoleAsciiOutput output = new ConsoleAsciiOutput(nullChannel);
+        output.output(chars);
+        return output.getBytesWritten();
+    }
+
+    @Benchmark
+    public void perCharPrint() {
+        for (char[] row : chars) {
+            for (char c : row) {
+                nullStream.print(c + " ");
+            }
+            nullStream.println();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ascii_output;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of HtmlAsciiOutput.output, writing the chars of an image of the given size rendered with a
+ * char every 4 pixels (so 64, 512 and 2048 chars in a row), drawn from a char set of the given size.
+ * The file is written plain, or GZIP-compressed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g",
+        "-Dascii_art.glyphCache=target/benchmarks/glyph_brightness.bin"})
+public class HtmlAsciiOutputBenchmark {
+    private static final String FONT = "Courier New";
+    private static final int PIXELS_PER_CHAR = 4;
+    private static final long SEED = 42;
+
+    @Param({"256", "2048", "8192"})
+    public int size;
+
+    @Param({"10", "95"})
+    public int charsetSize;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private char[][] chars;
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(SEED);
+        int numChars = size / PIXELS_PER_CHAR;
+        char first = charsetSize == 10 ? '0' : ' ';
+        chars = new char[numChars][numChars];
+        for (char[] row : chars) {
+            for (int x = 0; x < row.length; x++) {
+                row[x] = (char) (first + random.nextInt(charsetSize));
+            }
+        }
+        file = Files.createTempFile("ascii_art_bench", gzip ? ".html.gz" : ".html");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void output() {
+        new HtmlAsciiOutput(file.toString(), FONT).output(chars);
+    }
+}
@@ -0,0 +1,79 @@
+package image;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load-time benchmark of FileImage: the bulk scanline copy of the FileImage constructor against the
+ * per-pixel getRGB(x, y) loop it replaced. The image is decoded once, so only the pixel copy is timed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g",
+        "-Dascii_art.glyphCache=target/benchmarks/glyph_brightness.bin"})
+public class FileImageLoadBenchmark {
+    @Param({"256", "2048", "8192"})
+    public int size;
+
+    @Param({"INT_RGB", "3BYTE_BGR"})
+    public String type;
+
+    private BufferedImage im;
+
+    @Setup
+    public void setup() {
+        int imageType = type.equals("INT_RGB") ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_3BYTE_BGR;
+        //one pixel more than a power of 2, the worst case for padding
+        im = SyntheticImages.create(size + 1, size + 1, imageType);
+    }
+
+    @Benchmark
+    public Image bulkLoad() {
+        return new FileImage(im);
+    }
+
+    @Benchmark
+    public int[] perPixelLoad() {
+        return legacyLoad(im);
+    }
+
+    /**
+     * the loading loop the FileImage constructor used before: fill the whole padded canvas white, then
+     * copy the image pixel by pixel.
+     *
+     * @param im the decoded image.
+     * @return the padded pixels, row after row.
+     */
+    static int[] legacyLoad(BufferedImage im) {
+        int origWidth = im.getWidth(), origHeight = im.getHeight();
+        int newWidth = FileImage.getNextExp(origWidth);
+        int newHeight = FileImage.getNextExp(origHeight);
+        int[] pixels = new int[newWidth * newHeight];
+        int rowsToAdd = newHeight - origHeight;
+        int colsToAdd = newWidth - origWidth;
+        Arrays.fill(pixels, Color.WHITE.getRGB());
+        for (int i = 0; i < origHeight; i++) {
+            for (int j = 0; j < origWidth; j++) {
+                pixels[(i + rowsToAdd / 2) * newWidth + j + colsToAdd / 2] = im.getRGB(j, i);
+            }
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,82 @@
+package image;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scalar and the Vector API LumaKernels on a whole image: converting its packed pixels to
+ * luminance, and summing its luminance into the first level of the pyramid. The vector kernels have to
+ * be compiled in, build with mvn -Pjmh,vector package. In a build without them the vector runs fail
+ * in setup with a message saying so, and the other runs go on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "--add-modules", "jdk.incubator.vector",
+        "-Dascii_art.glyphCache=target/benchmarks/glyph_brightness.bin"})
+public class LumaKernelsBenchmark {
+    @Param({"256", "2048", "8192"})
+    public int size;
+
+    @Param({"scalar", "vector"})
+    public String kernels;
+
+    private LumaKernels selected;
+    private int[] pixels;
+    private int[] luminance;
+    private int[] blockSums;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        selected = kernels.equals("scalar") ? new ScalarLumaKernels() : createVectorKernels();
+        pixels = SyntheticImages.create(size, size, BufferedImage.TYPE_INT_RGB)
+                .getRGB(0, 0, size, size, null, 0, size);
+        luminance = new int[size * size];
+        new ScalarLumaKernels().toLuminance(pixels, luminance, luminance.length);
+        blockSums = new int[size * size / 4];
+    }
+
+    /**
+     * @return the vector kernels.
+     * @throws IllegalStateException if they weren't compiled in.
+     */
+    private static LumaKernels createVectorKernels() throws ReflectiveOperationException {
+        Class<?> vectorKernels;
+        try {
+            vectorKernels = Class.forName(LumaKernels.VECTOR_KERNELS_CLASS);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("The vector kernels aren't compiled in: build with " +
+                    "mvn -Pjmh,vector package, or skip them with -p kernels=scalar");
+        }
+        return (LumaKernels) vectorKernels.getDeclaredConstructor().newInstance();
+    }
+
+    @Benchmark
+    public int[] toLuminance() {
+        selected.toLuminance(pixels, luminance, pixels.length);
+        return luminance;
+    }
+
+    @Benchmark
+    public int[] sumBlocks() {
+        int half = size / 2;
+        for (int row = 0; row < half; row++) {
+            selected.sumBlocks(luminance, 2 * row * size, (2 * row + 1) * size, blockSums, row * half, half);
+        }
+        return blockSums;
+    }
+}
@@ -0,0 +1,59 @@
+package image;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the two ways of visiting the sub-images of an image: the getSubImages iterator, which
+ * allocates a SubImage (and boxes its coordinates) per block, and forEachBlock, which reuses one view.
+ * Each block is reduced to the sum of two of its pixels, so the iteration itself dominates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g",
+        "-Dascii_art.glyphCache=target/benchmarks/glyph_brightness.bin"})
+public class SubImageIterationBenchmark {
+    @Param({"256", "2048", "8192"})
+    public int size;
+
+    @Param({"2", "8"})
+    public int blockSize;
+
+    private Image img;
+
+    @Setup
+    public void setup() {
+        img = SyntheticImages.createImage(size);
+    }
+
+    @Benchmark
+    public long getSubImages() {
+        long sum = 0;
+        for (Image block : img.getSubImages(blockSize)) {
+            sum += block.getRawPixel(0, 0) + block.getRawPixel(blockSize - 1, blockSize - 1);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long forEachBlock() {
+        long[] sum = new long[1];
+        img.forEachBlock(blockSize, (row, col, block) ->
+                sum[0] += block.getRawPixel(0, 0) + block.getRawPixel(blockSize - 1, blockSize - 1));
+        return sum[0];
+    }
+}
@@ -0,0 +1,44 @@
+package image;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Deterministic test images for the benchmarks: a gradient with noise, so that blocks have different
+ * brightness, in any size and BufferedImage type.
+ */
+public class SyntheticImages {
+    private static final long SEED = 42;
+    private static final int NOISE = 64;
+    private static final int CHANNEL_MASK = 0xFF;
+
+    /**
+     * @param width  the width of the image.
+     * @param height the height of the image.
+     * @param type   a BufferedImage type, such as BufferedImage.TYPE_INT_RGB.
+     * @return a new image of the given size and type.
+     */
+    public static BufferedImage create(int width, int height, int type) {
+        Random random = new Random(SEED);
+        BufferedImage im = new BufferedImage(width, height, type);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int red = (x * CHANNEL_MASK / width + random.nextInt(NOISE)) & CHANNEL_MASK;
+                int green = (y * CHANNEL_MASK / height + random.nextInt(NOISE)) & CHANNEL_MASK;
+                int blue = (x ^ y) & CHANNEL_MASK;
+                row[x] = 0xFF000000 | red << 16 | green << 8 | blue;
+            }
+            im.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return im;
+    }
+
+    /**
+     * @param size the width and height of the image.
+     * @return a new square Image, held in memory.
+     */
+    public static Image createImage(int size) {
+        return Image.fromBufferedImage(create(size, size, BufferedImage.TYPE_INT_RGB));
+    }
+}
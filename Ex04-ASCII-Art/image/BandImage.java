@@ -0,0 +1,79 @@
+package image;
+
+import java.awt.*;
+
+/**
+ * a class that represent a horizontal band of rows of an image, as a view over that image.
+ */
+class BandImage implements Image {
+    /**
+     * private final fields- img, firstRow, height.
+     */
+    private final Image img;
+    private final int firstRow;
+    private final int height;
+
+    /**
+     * returns the band of the given height that starts at row firstRow of img.
+     *
+     * @param img      the Image containing the band.
+     * @param firstRow the first row of the band.
+     * @param height   the number of rows in the band.
+     */
+    BandImage(Image img, int firstRow, int height) {
+        this.img = img;
+        this.firstRow = firstRow;
+        this.height = height;
+    }
+
+    /**
+     * returns the Color value in the coordinate(y,x) of the band.
+     *
+     * @param x - col coordinate
+     * @param y - row coordinate, relative to the first row of the band.
+     * @return the pixel Color object in (y,x) in the band.
+     */
+    @Override
+    public Color getPixel(int x, int y) {
+        return img.getPixel(x, firstRow + y);
+    }
+
+    /**
+     * returns the packed ARGB value in the coordinate(y,x) of the band.
+     *
+     * @param x - col coordinate
+     * @param y - row coordinate, relative to the first row of the band.
+     * @return the packed ARGB value of the pixel in (y,x) in the band.
+     */
+    @Override
+    public int getRawPixel(int x, int y) {
+        return img.getRawPixel(x, firstRow + y);
+    }
+
+    /**
+     * returns the luminance summed-area table of the band, as a slice of the table of the image, so an
+     * image that caches its table sums it only once for all of its bands.
+     *
+     * @return the table of the band.
+     */
+    @Override
+    public IntegralImage getIntegralImage() {
+        return img.getIntegralImage().getBand(firstRow, height);
+    }
+
+    /**
+     * @return the width of the band, which is the width of the image.
+     */
+    @Override
+    public int getWidth() {
+        return img.getWidth();
+    }
+
+    /**
+     * @return the height of the band.
+     */
+    @Override
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,78 @@
+package image;
+
+import java.util.Arrays;
+
+/**
+ * A package-private class of the package image.
+ * helpers for summing the channels of the pixels of a row of cells and turning the sums into packed
+ * RGB averages. The sums of a row of cells are kept in one array, CHANNELS entries per cell.
+ */
+class BlockColors {
+    /**
+     * the number of summed channels (red, green, blue) and the layout of a packed pixel.
+     */
+    static final int CHANNELS = 3;
+    private static final int BYTE_MASK = 0xFF;
+    private static final int RED_SHIFT = 16;
+    private static final int GREEN_SHIFT = 8;
+
+    /**
+     * adds the channel sums of some pixels to the sums of a cell.
+     *
+     * @param sums  the sums of a row of cells.
+     * @param block the index of the cell in the row.
+     * @param red   the sum of the red channel of the pixels.
+     * @param green the sum of the green channel of the pixels.
+     * @param blue  the sum of the blue channel of the pixels.
+     */
+    static void add(long[] sums, int block, long red, long green, long blue) {
+        int i = block * CHANNELS;
+        sums[i] += red;
+        sums[i + 1] += green;
+        sums[i + 2] += blue;
+    }
+
+    /**
+     * @param rgb a packed pixel.
+     * @return its red channel.
+     */
+    static int red(int rgb) {
+        return (rgb >> RED_SHIFT) & BYTE_MASK;
+    }
+
+    /**
+     * @param rgb a packed pixel.
+     * @return its green channel.
+     */
+    static int green(int rgb) {
+        return (rgb >> GREEN_SHIFT) & BYTE_MASK;
+    }
+
+    /**
+     * @param rgb a packed pixel.
+     * @return its blue channel.
+     */
+    static int blue(int rgb) {
+        return rgb & BYTE_MASK;
+    }
+
+    /**
+     * writes the rounded average of each cell of a row and clears the sums for the next row.
+     *
+     * @param sums   the sums of a row of cells.
+     * @param colors the output, one packed RGB int per cell, row after row.
+     * @param grid   the grid of the cells.
+     * @param row    the index of the row.
+     */
+    static void average(long[] sums, int[] colors, CellGrid grid, int row) {
+        int first = row * grid.getNumCols();
+        for (int col = 0; col < grid.getNumCols(); col++) {
+            long area = (long) grid.getCellWidth(col) * grid.getCellHeight(row);
+            int i = col * CHANNELS;
+            colors[first + col] = (int) ((sums[i] + area / 2) / area) << RED_SHIFT |
+                    (int) ((sums[i + 1] + area / 2) / area) << GREEN_SHIFT |
+                    (int) ((sums[i + 2] + area / 2) / area);
+        }
+        Arrays.fill(sums, 0);
+    }
+}
@@ -0,0 +1,82 @@
+package image;
+
+import java.awt.*;
+
+/**
+ * a mutable view of a rectangular block of an image. Unlike SubImage, a single BlockView is moved from
+ * block to block, so iterating all the blocks of an image allocates nothing per block.
+ */
+class BlockView implements Image {
+    /**
+     * private fields- img is final, the position and size of the block (in pixels) change.
+     */
+    private final Image img;
+    private int x0;
+    private int y0;
+    private int width;
+    private int height;
+
+    /**
+     * constructor of a view of blocks of img. it must be moved to a block before use.
+     *
+     * @param img the Image containing the blocks.
+     */
+    BlockView(Image img) {
+        this.img = img;
+    }
+
+    /**
+     * moves the view to the given block.
+     *
+     * @param x0     the first col of the block.
+     * @param y0     the first row of the block.
+     * @param width  the width of the block.
+     * @param height the height of the block.
+     */
+    void moveTo(int x0, int y0, int width, int height) {
+        this.x0 = x0;
+        this.y0 = y0;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * returns the Color value in the coordinate(y,x) of the current block.
+     *
+     * @param x - col coordinate
+     * @param y - row coordinate.
+     * @return the pixel Color object in (y,x) in the block.
+     */
+    @Override
+    public Color getPixel(int x, int y) {
+        return img.getPixel(x0 + x, y0 + y);
+    }
+
+    /**
+     * returns the packed ARGB value in the coordinate(y,x) of the current block.
+     *
+     * @param x - col coordinate
+     * @param y - row coordinate.
+     * @return the packed ARGB value of the pixel in (y,x) in the block.
+     */
+    @Override
+    public int getRawPixel(int x, int y) {
+        return img.getRawPixel(x0 + x, y0 + y);
+    }
+
+    /**
+     * @return the width of the block
+     */
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the block.
+     */
+    @Override
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,17 @@
+package image;
+
+/**
+ * A visitor of the blocks of an image, for Image.forEachBlock, which visits squares of a given size.
+ */
+@FunctionalInterface
+public interface BlockVisitor {
+    /**
+     * called once for each block of the image.
+     *
+     * @param row   the row index of the block.
+     * @param col   the col index of the block.
+     * @param block a view of the block. the same object is reused for all the blocks of an iteration, so
+     *              it is only valid during this call and must not be kept.
+     */
+    void visit(int row, int col, Image block);
+}
@@ -0,0 +1,147 @@
+package image;
+
+import java.util.Objects;
+
+/**
+ * the partition of an image into a grid of rectangular cells, one char each.
+ * The bounds of col i are [i * width / numCols, (i + 1) * width / numCols), and likewise for rows, so
+ * the cells cover the whole image for any number of cols, and the sizes of the cells of a row (or a
+ * col) differ by at most one pixel.
+ */
+public final class CellGrid {
+    /**
+     * private final fields- the size of the image and the number of cols and rows of cells.
+     */
+    private final int width;
+    private final int height;
+    private final int numCols;
+    private final int numRows;
+
+    /**
+     * constructor of a grid with the given number of cols and rows.
+     *
+     * @param width   the width of the image.
+     * @param height  the height of the image.
+     * @param numCols the number of cells in a row, between 1 and width.
+     * @param numRows the number of cells in a col, between 1 and height.
+     */
+    public CellGrid(int width, int height, int numCols, int numRows) {
+        if (numCols < 1 || numCols > width || numRows < 1 || numRows > height) {
+            throw new IllegalArgumentException("the number of cols or rows doesn't fit the image");
+        }
+        this.width = width;
+        this.height = height;
+        this.numCols = numCols;
+        this.numRows = numRows;
+    }
+
+    /**
+     * returns a grid of numCols cells in a row, with as many rows as make the cells' height divided by
+     * their width closest to aspectRatio (and at least one row). With aspect ratio 1 and sizes that
+     * divide each other, these are the square blocks of size width / numCols.
+     *
+     * @param width       the width of the image.
+     * @param height      the height of the image.
+     * @param numCols     the number of cells in a row, between 1 and width.
+     * @param aspectRatio the requested height of a cell divided by its width.
+     * @return the grid.
+     */
+    public static CellGrid withAspectRatio(int width, int height, int numCols, double aspectRatio) {
+        if (!(aspectRatio > 0)) {
+            throw new IllegalArgumentException("aspectRatio must be positive");
+        }
+        double cellHeight = (double) width / numCols * aspectRatio;
+        int numRows = (int) Math.max(1, Math.min(height, Math.round(height / cellHeight)));
+        return new CellGrid(width, height, numCols, numRows);
+    }
+
+    /**
+     * @return the number of cells in a row.
+     */
+    public int getNumCols() {
+        return numCols;
+    }
+
+    /**
+     * @return the number of cells in a col.
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    /**
+     * @param col a col index, between 0 and numCols (numCols gives the end of the last col).
+     * @return the first x coordinate of the col.
+     */
+    public int getColStart(int col) {
+        return (int) ((long) col * width / numCols);
+    }
+
+    /**
+     * @param row a row index, between 0 and numRows (numRows gives the end of the last row).
+     * @return the first y coordinate of the row.
+     */
+    public int getRowStart(int row) {
+        return (int) ((long) row * height / numRows);
+    }
+
+    /**
+     * @param col a col index.
+     * @return the width of the cells of the col.
+     */
+    public int getCellWidth(int col) {
+        return getColStart(col + 1) - getColStart(col);
+    }
+
+    /**
+     * @param row a row index.
+     * @return the height of the cells of the row.
+     */
+    public int getCellHeight(int row) {
+        return getRowStart(row + 1) - getRowStart(row);
+    }
+
+    /**
+     * @return the size of the cells if they are all squares of the same size, 0 otherwise.
+     */
+    public int getSquareCellSize() {
+        if (width % numCols != 0 || height % numRows != 0 || width / numCols != height / numRows) {
+            return 0;
+        }
+        return width / numCols;
+    }
+
+    /**
+     * returns the grid of a single row of this grid, as a grid of its own over that band of the image.
+     *
+     * @param row a row index.
+     * @return a grid of one row, with the cols of this grid, over an image of the height of the row.
+     */
+    public CellGrid getRow(int row) {
+        return new CellGrid(width, getCellHeight(row), numCols, 1);
+    }
+
+    /**
+     * checks if obj is equal to this grid, based on width, height, numCols, numRows fields.
+     *
+     * @param obj the other object
+     * @return true if it does, false otherwise.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof CellGrid) {
+            CellGrid other = (CellGrid) obj;
+            return width == other.width && height == other.height && numCols == other.numCols &&
+                    numRows == other.numRows;
+        }
+        return false;
+    }
+
+    /**
+     * @return a hashcode value for the object
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(width, height, numCols, numRows);
+    }
+}
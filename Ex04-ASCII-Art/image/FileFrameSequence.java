@@ -0,0 +1,45 @@
+package image;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A package-private class of the package image.
+ * the frames of an animation given as a sequence of image files, one frame per file.
+ */
+class FileFrameSequence implements FrameSequence {
+    /**
+     * private final field- the files, in order. private field- the index of the next one.
+     */
+    private final List<String> filenames;
+    private int nextIndex;
+
+    /**
+     * constructor for FileFrameSequence.
+     *
+     * @param filenames the files of the frames, in order.
+     */
+    FileFrameSequence(List<String> filenames) {
+        this.filenames = new ArrayList<>(filenames);
+    }
+
+    /**
+     * @return the image of the next file, or null after the last one.
+     * @throws IOException if the file couldn't be read.
+     */
+    @Override
+    public Image next() throws IOException {
+        if (nextIndex == filenames.size()) {
+            return null;
+        }
+        return new FileImage(filenames.get(nextIndex++));
+    }
+
+    /**
+     * nothing to release, every file is closed once it's read.
+     */
+    @Override
+    public void close() {
+    }
+}
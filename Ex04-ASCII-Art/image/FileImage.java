@@ -2,6 +2,12 @@ package image;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.io.File;
 import java.io.IOException;
 
@@ -12,49 +18,179 @@ import java.io.IOException;
  */
 class FileImage implements Image {
     /**
-     * a private static final field- DEFAULT_COLOR, which is white.
+     * a private static final field- DEFAULT_COLOR, which is white (as a packed ARGB int).
      */
-    private static final Color DEFAULT_COLOR = Color.WHITE;
+    private static final int DEFAULT_COLOR = Color.WHITE.getRGB();
     /**
-     * private final fields-width, height, pixelArray.
+     * private static final fields- OPAQUE_ALPHA (the alpha bits of an opaque pixel), BYTE_MASK,
+     * RED_SHIFT, GREEN_SHIFT (bit offsets of the channels in a packed ARGB pixel).
+     */
+    private static final int OPAQUE_ALPHA = 0xFF000000;
+    private static final int BYTE_MASK = 0xFF;
+    private static final int RED_SHIFT = 16;
+    private static final int GREEN_SHIFT = 8;
+    /**
+     * private final fields-width, height, pixelArray, and the size and offset of the original image.
+     * The padding is virtual: pixelArray holds only the packed ARGB value of each pixel of the original
+     * image, row after row (index = (y - rowOffset) * origWidth + x - colOffset), every other pixel is
+     * DEFAULT_COLOR.
      */
     private final int width;
     private final int height;
-    private final Color[][] pixelArray;
+    private final int[] pixelArray;
+    private final int origWidth;
+    private final int origHeight;
+    private final int rowOffset;
+    private final int colOffset;
+    /**
+     * the luminance plane, the luminance summed-area table and the luminance pyramid, built on first use.
+     */
+    private LuminancePlane luminancePlane;
+    private IntegralImage integralImage;
+    private LuminancePyramid luminancePyramid;
 
     /**
-     * constructor which initializes the width,height fields, pixelArray arr.
-     * adds white pixels if needed.
+     * constructor which reads the image from the given file.
      *
      * @param filename the name of the file containing the image.
-     * @throws IOException throws an exception, if it couldn't open the file.
+     * @throws IOException throws an exception, if it couldn't open or decode the file.
      */
     public FileImage(String filename) throws IOException {
-        java.awt.image.BufferedImage im = ImageIO.read(new File(filename));
-        int origWidth = im.getWidth(), origHeight = im.getHeight();
-        //im.getRGB(x, y)); getter for access to a specific RGB rates
+        this(read(filename));
+    }
 
-        int newWidth = getNextExp(origWidth);
-        int newHeight = getNextExp(origHeight);
+    /**
+     * constructor which initializes the width,height fields, pixelArray arr.
+     * the image is padded (virtually) with white pixels to the next power of 2 in each dimension.
+     *
+     * @param im the decoded image.
+     */
+    FileImage(BufferedImage im) {
+        this(getNextExp(im.getWidth()), getNextExp(im.getHeight()), im,
+                (getNextExp(im.getHeight()) - im.getHeight()) / 2, (getNextExp(im.getWidth()) - im.getWidth()) / 2);
+    }
 
-        width = newWidth;
-        height = newHeight;
-        pixelArray = new Color[newHeight][newWidth];
+    /**
+     * constructor of a white canvas of the given size, with im drawn at the given offset.
+     * im must fit inside the canvas. only the pixels of im are stored.
+     *
+     * @param width     the width of the canvas.
+     * @param height    the height of the canvas.
+     * @param im        the image to draw on the canvas, or null for a blank canvas.
+     * @param rowOffset the row of the canvas of the first row of im.
+     * @param colOffset the col of the canvas of the first col of im.
+     */
+    FileImage(int width, int height, BufferedImage im, int rowOffset, int colOffset) {
+        this.width = width;
+        this.height = height;
+        this.rowOffset = rowOffset;
+        this.colOffset = colOffset;
+        origWidth = im == null ? 0 : im.getWidth();
+        origHeight = im == null ? 0 : im.getHeight();
+        pixelArray = new int[origHeight * origWidth];
+        if (im != null) {
+            copyPixels(im);
+        }
+    }
 
-        int rowsToAdd = newHeight - origHeight;
-        int colsToAdd = newWidth - origWidth;
+    /**
+     * reads the image in the given file.
+     *
+     * @param filename the name of the file containing the image.
+     * @return the decoded image.
+     * @throws IOException if the file couldn't be read or isn't in a supported format.
+     */
+    private static BufferedImage read(String filename) throws IOException {
+        BufferedImage im = ImageIO.read(new File(filename));
+        if (im == null) {
+            throw new IOException("Unsupported image format: " + filename);
+        }
+        return im;
+    }
+
+    /**
+     * copies the pixels of im into pixelArray, whole scanlines at a time. TYPE_INT_RGB, TYPE_INT_ARGB
+     * and TYPE_3BYTE_BGR images are read straight from their data buffer, any other layout goes through
+     * a single bulk getRGB call.
+     *
+     * @param im the decoded image.
+     */
+    private void copyPixels(BufferedImage im) {
+        Raster raster = im.getRaster();
+        int dst = 0;
+        switch (im.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+                if (raster.getSampleModel() instanceof SinglePixelPackedSampleModel) {
+                    copyIntPixels(raster, im.getType() == BufferedImage.TYPE_INT_RGB, dst);
+                    return;
+                }
+                break;
+            case BufferedImage.TYPE_3BYTE_BGR:
+                if (raster.getSampleModel() instanceof ComponentSampleModel) {
+                    copyBgrPixels(raster, dst);
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+        im.getRGB(0, 0, origWidth, origHeight, pixelArray, dst, origWidth);
+    }
 
-        //first fill all white
-        for (int i = 0; i < newHeight; i++) {
-            for (int j = 0; j < newWidth; j++) {
-                pixelArray[i][j] = DEFAULT_COLOR;
+    /**
+     * copies a raster of packed int pixels, scanline by scanline.
+     *
+     * @param raster the raster of a TYPE_INT_RGB or TYPE_INT_ARGB image.
+     * @param opaque true if the alpha bits of the source are undefined and should be set to opaque.
+     * @param dst    the index in pixelArray of the first pixel.
+     */
+    private void copyIntPixels(Raster raster, boolean opaque, int dst) {
+        DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+        int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+        int[] data = buffer.getData();
+        int src = buffer.getOffset() - raster.getSampleModelTranslateY() * stride -
+                raster.getSampleModelTranslateX();
+        for (int i = 0; i < raster.getHeight(); i++) {
+            if (opaque) {
+                for (int j = 0; j < raster.getWidth(); j++) {
+                    pixelArray[dst + j] = data[src + j] | OPAQUE_ALPHA;
+                }
+            } else {
+                System.arraycopy(data, src, pixelArray, dst, raster.getWidth());
             }
+            src += stride;
+            dst += origWidth;
         }
-        //copy the original image
-        for (int i = 0; i < origHeight; i++) {
-            for (int j = 0; j < origWidth; j++) {
-                pixelArray[i + rowsToAdd / 2][j + colsToAdd / 2] = new Color(im.getRGB(j, i));
+    }
+
+    /**
+     * copies a raster of interleaved blue, green, red bytes, scanline by scanline.
+     *
+     * @param raster the raster of a TYPE_3BYTE_BGR image.
+     * @param dst    the index in pixelArray of the first pixel.
+     */
+    private void copyBgrPixels(Raster raster, int dst) {
+        DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+        ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+        int stride = sampleModel.getScanlineStride();
+        int pixelStride = sampleModel.getPixelStride();
+        int[] bandOffsets = sampleModel.getBandOffsets();
+        byte[] data = buffer.getData();
+        int src = buffer.getOffset() - raster.getSampleModelTranslateY() * stride -
+                raster.getSampleModelTranslateX() * pixelStride;
+        int redOffset = bandOffsets[0], greenOffset = bandOffsets[1], blueOffset = bandOffsets[2];
+        for (int i = 0; i < raster.getHeight(); i++) {
+            int pixel = src;
+            for (int j = 0; j < raster.getWidth(); j++) {
+                pixelArray[dst + j] = OPAQUE_ALPHA |
+                        (data[pixel + redOffset] & BYTE_MASK) << RED_SHIFT |
+                        (data[pixel + greenOffset] & BYTE_MASK) << GREEN_SHIFT |
+                        (data[pixel + blueOffset] & BYTE_MASK);
+                pixel += pixelStride;
             }
+            src += stride;
+            dst += origWidth;
         }
     }
 
@@ -64,7 +200,7 @@ class FileImage implements Image {
      * @param number- the number
      * @return the next power of two bigger then the number(or the number itself if it is a power of 2)
      */
-    private int getNextExp(int number) {
+    static int getNextExp(int number) {
         //check if log n of base 2 is int, if it is, the number is already a power of 2, this is because
         // Math.log is in base e.
         double logNumber = Math.log(number) / Math.log(2);
@@ -93,6 +229,7 @@ class FileImage implements Image {
 
     /**
      * returns the Color value in the coordinate(y,x) of the image.
+     * this is a view over the packed pixel, a new Color is created on each call.
      *
      * @param x col coordinate.
      * @param y row coordinate.
@@ -100,6 +237,65 @@ class FileImage implements Image {
      */
     @Override
     public Color getPixel(int x, int y) {
-        return pixelArray[y][x];
+        return new Color(getRawPixel(x, y));
+    }
+
+    /**
+     * returns the packed ARGB value in the coordinate(y,x) of the image. The padding is white.
+     *
+     * @param x col coordinate.
+     * @param y row coordinate.
+     * @return the packed ARGB value in the coordinate(y,x) in the image.
+     */
+    @Override
+    public int getRawPixel(int x, int y) {
+        int origX = x - colOffset, origY = y - rowOffset;
+        if (origX < 0 || origY < 0 || origX >= origWidth || origY >= origHeight) {
+            return DEFAULT_COLOR;
+        }
+        return pixelArray[origY * origWidth + origX];
+    }
+
+    /**
+     * returns the luminance plane of the image. it is built on the first call and shared by all later
+     * ones (and so by every matcher and resolution).
+     *
+     * @return the luminance plane of the image.
+     */
+    @Override
+    public synchronized LuminancePlane getLuminancePlane() {
+        if (luminancePlane == null) {
+            luminancePlane = new LuminancePlane(width, height, pixelArray, colOffset, rowOffset, origWidth,
+                    origHeight);
+        }
+        return luminancePlane;
+    }
+
+    /**
+     * returns the luminance summed-area table of the image. it is built on the first call and shared by
+     * all later ones.
+     *
+     * @return the luminance summed-area table of the image.
+     */
+    @Override
+    public synchronized IntegralImage getIntegralImage() {
+        if (integralImage == null) {
+            integralImage = new IntegralImage(getLuminancePlane());
+        }
+        return integralImage;
+    }
+
+    /**
+     * returns the luminance pyramid of the image. it is built on the first call and shared by all later
+     * ones.
+     *
+     * @return the luminance pyramid of the image.
+     */
+    @Override
+    public synchronized LuminancePyramid getLuminancePyramid() {
+        if (luminancePyramid == null) {
+            luminancePyramid = new LuminancePyramid(getLuminancePlane());
+        }
+        return luminancePyramid;
     }
 }
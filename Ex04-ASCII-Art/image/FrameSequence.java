@@ -0,0 +1,25 @@
+package image;
+
+import java.io.IOException;
+
+/**
+ * the frames of an animation (an animated GIF, or a sequence of image files), decoded one at a time.
+ * Like the images returned by Image.fromFile, each frame is padded to powers of 2.
+ */
+public interface FrameSequence extends AutoCloseable {
+    /**
+     * decodes the next frame.
+     *
+     * @return the next frame, or null after the last one.
+     * @throws IOException if the frame couldn't be read.
+     */
+    Image next() throws IOException;
+
+    /**
+     * releases the decoder and closes the file.
+     *
+     * @throws IOException if the file couldn't be closed.
+     */
+    @Override
+    void close() throws IOException;
+}
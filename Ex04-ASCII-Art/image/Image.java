@@ -1,7 +1,9 @@
 package image;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Facade for the image module and an interface representing an image.
@@ -18,6 +20,18 @@ public interface Image {
      */
     Color getPixel(int x, int y);
 
+    /**
+     * returns the pixel in the given coordinate as a packed ARGB int (the format of Color.getRGB()).
+     * unlike getPixel, implementations backed by primitive arrays don't allocate anything.
+     *
+     * @param x col coordinate.
+     * @param y row coordinate.
+     * @return the packed ARGB value of the pixel in (y,x) in the img.
+     */
+    default int getRawPixel(int x, int y) {
+        return getPixel(x, y).getRGB();
+    }
+
     /**
      * @return the width of the image
      */
@@ -28,6 +42,67 @@ public interface Image {
      */
     int getHeight();
 
+    /**
+     * returns the luminance of every pixel of this image as a primitive plane. The default
+     * implementation converts the image on every call, images that don't change should cache it.
+     *
+     * @return the luminance plane of this image.
+     */
+    default LuminancePlane getLuminancePlane() {
+        return new LuminancePlane(this);
+    }
+
+    /**
+     * returns a summed-area table of the luminance of this image, which answers the average brightness
+     * of any block in constant time. The default implementation builds a new table on every call,
+     * images that don't change should cache it.
+     *
+     * @return the luminance summed-area table of this image.
+     */
+    default IntegralImage getIntegralImage() {
+        return new IntegralImage(getLuminancePlane());
+    }
+
+    /**
+     * returns the luminance pyramid of this image, whose level k holds the luminance sums of its square
+     * blocks of 2^k pixels. The default implementation builds a new pyramid on every call, images that
+     * don't change should cache it.
+     *
+     * @return the luminance pyramid of this image.
+     */
+    default LuminancePyramid getLuminancePyramid() {
+        return new LuminancePyramid(getLuminancePlane());
+    }
+
+    /**
+     * returns the average color of each cell of the grid, in one pass over the rows of this image.
+     * Cells are ordered row after row.
+     *
+     * @param grid a partition of this image into cells.
+     * @return the average of each cell, as a packed RGB int (0xRRGGBB).
+     */
+    default int[] getCellColors(CellGrid grid) {
+        int numRows = grid.getNumRows(), numCols = grid.getNumCols();
+        int[] colors = new int[numRows * numCols];
+        long[] sums = new long[numCols * BlockColors.CHANNELS];
+        for (int row = 0; row < numRows; row++) {
+            for (int y = grid.getRowStart(row); y < grid.getRowStart(row + 1); y++) {
+                for (int col = 0; col < numCols; col++) {
+                    int red = 0, green = 0, blue = 0;
+                    for (int x = grid.getColStart(col); x < grid.getColStart(col + 1); x++) {
+                        int rgb = getRawPixel(x, y);
+                        red += BlockColors.red(rgb);
+                        green += BlockColors.green(rgb);
+                        blue += BlockColors.blue(rgb);
+                    }
+                    BlockColors.add(sums, col, red, green, blue);
+                }
+            }
+            BlockColors.average(sums, colors, grid, row);
+        }
+        return colors;
+    }
+
     /**
      * Open an image from file. Each dimensions of the returned image is guaranteed
      * to be a power of 2, but the dimensions may be different.
@@ -44,6 +119,72 @@ public interface Image {
         }
     }
 
+    /**
+     * Wrap an image that is already decoded. Like fromFile, each dimension of the returned image is padded
+     * to a power of 2. The pixels are copied, later changes to im aren't seen.
+     *
+     * @param im a decoded image
+     * @return an object implementing Image with the pixels of im
+     */
+    static Image fromBufferedImage(BufferedImage im) {
+        return new FileImage(im);
+    }
+
+    /**
+     * Open an image from file for streaming: it is decoded one band of rows at a time, so its pixels never
+     * have to fit in memory together. Like fromFile, each dimension is padded to a power of 2.
+     * The returned image must be closed when done.
+     *
+     * @param filename a path to an image file on disk
+     * @return a StreamingImage if the file could be opened, null otherwise
+     */
+    static StreamingImage streamFromFile(String filename) {
+        try {
+            return new StreamingImage(filename);
+        } catch (IOException ioe) {
+            return null;
+        }
+    }
+
+    /**
+     * Open the frames of an animated GIF (or of any image file, a still image being a single frame).
+     * The frames are decoded one at a time, each padded like fromFile. The returned sequence must be
+     * closed when done.
+     *
+     * @param filename a path to an image file on disk
+     * @return the frames of the file if it could be opened, null otherwise
+     */
+    static FrameSequence framesFromFile(String filename) {
+        try {
+            return new ReaderFrameSequence(filename);
+        } catch (IOException ioe) {
+            return null;
+        }
+    }
+
+    /**
+     * Open a sequence of image files as the frames of an animation, one frame per file.
+     *
+     * @param filenames paths to image files on disk, in the order of the frames
+     * @return the frames of the files. a file that can't be read fails when its frame is reached
+     */
+    static FrameSequence framesFromFiles(List<String> filenames) {
+        return new FileFrameSequence(filenames);
+    }
+
+    /**
+     * returns a horizontal band of this image: its rows [y, y + bandHeight), in full width.
+     * The default implementation is a view over this image. Images that aren't held in memory decode
+     * only the requested rows.
+     *
+     * @param y          the first row of the band.
+     * @param bandHeight the number of rows in the band.
+     * @return the band, as an image of width getWidth() and height bandHeight.
+     */
+    default Image getBand(int y, int bandHeight) {
+        return new BandImage(this, y, bandHeight);
+    }
+
     /**
      * Allows iterating the pixels' colors by order (first row, second row and so on).
      *
@@ -65,4 +206,23 @@ public interface Image {
                 (col, row) -> new SubImage(this, size, row, col), size);
     }
 
+    /**
+     * visits the sub-images (of the given size) in the same order as getSubImages, without allocating
+     * anything per sub-image: the coordinates are passed as primitives, and a single view is moved from
+     * block to block.
+     *
+     * @param size    the size of each block (a block is a square).
+     * @param visitor called with the row, col and a view of each block.
+     */
+    default void forEachBlock(int size, BlockVisitor visitor) {
+        BlockView block = new BlockView(this);
+        int numRows = getHeight() / size, numCols = getWidth() / size;
+        for (int row = 0; row < numRows; row++) {
+            for (int col = 0; col < numCols; col++) {
+                block.moveTo(col * size, row * size, size, size);
+                visitor.visit(row, col, block);
+            }
+        }
+    }
+
 }
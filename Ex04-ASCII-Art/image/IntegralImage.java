@@ -0,0 +1,145 @@
+package image;
+
+/**
+ * a summed-area table of the luminance of an image. Built once, it answers the luminance sum (and
+ * average) of any rectangular block of the image in constant time.
+ * It is built from the LuminancePlane of the image, whose values are exact integers, so all the sums
+ * are exact no matter how big the image is.
+ * Only the content of the plane is summed. The padding around it has a constant luminance, so its share
+ * of a block is calculated from the area of the block that falls outside of the content.
+ */
+public class IntegralImage {
+    /**
+     * private final fields- width, height, the content rectangle, sums.
+     * sums[(y * (contentWidth + 1)) + x] is the (scaled) luminance sum of all content pixels above and to
+     * the left of content pixel (x,y), so the first row and col are zeros.
+     */
+    private final int width;
+    private final int height;
+    private final int contentX;
+    private final int contentY;
+    private final int contentWidth;
+    private final int contentHeight;
+    private final long[] sums;
+
+    /**
+     * constructor- builds the table in a single pass over the luminance plane.
+     *
+     * @param plane the luminance of the image to sum.
+     */
+    IntegralImage(LuminancePlane plane) {
+        width = plane.getWidth();
+        height = plane.getHeight();
+        contentX = plane.getContentX();
+        contentY = plane.getContentY();
+        contentWidth = plane.getContentWidth();
+        contentHeight = plane.getContentHeight();
+        sums = new long[(contentWidth + 1) * (contentHeight + 1)];
+        int[] values = plane.getValues();
+        for (int y = 0; y < contentHeight; y++) {
+            long rowSum = 0;
+            int above = y * (contentWidth + 1) + 1;
+            int current = above + contentWidth + 1;
+            for (int x = 0; x < contentWidth; x++) {
+                rowSum += values[y * contentWidth + x];
+                sums[current + x] = sums[above + x] + rowSum;
+            }
+        }
+    }
+
+    /**
+     * constructor of a view over the rows of another table, sharing its sums.
+     *
+     * @param table    the table to view.
+     * @param firstRow the row of table that is the first row of the view.
+     * @param height   the number of rows in the view.
+     */
+    private IntegralImage(IntegralImage table, int firstRow, int height) {
+        width = table.width;
+        this.height = height;
+        contentX = table.contentX;
+        contentY = table.contentY - firstRow;
+        contentWidth = table.contentWidth;
+        contentHeight = table.contentHeight;
+        sums = table.sums;
+    }
+
+    /**
+     * returns the table of a band of rows of the image, without copying any sum.
+     *
+     * @param y          the first row of the band.
+     * @param bandHeight the number of rows in the band.
+     * @return the table of the band, whose row 0 is row y of this table.
+     */
+    IntegralImage getBand(int y, int bandHeight) {
+        return new IntegralImage(this, y, bandHeight);
+    }
+
+    /**
+     * returns the luminance sum of the pixels in the given block.
+     *
+     * @param x           the col of the top left pixel of the block.
+     * @param y           the row of the top left pixel of the block.
+     * @param blockWidth  the width of the block.
+     * @param blockHeight the height of the block.
+     * @return the sum of the luminance (0-255 per pixel) of the pixels in the block.
+     */
+    public double getBlockSum(int x, int y, int blockWidth, int blockHeight) {
+        return (double) getScaledBlockSum(x, y, blockWidth, blockHeight) / LuminancePlane.LUMINANCE_SCALE;
+    }
+
+    /**
+     * returns the exact luminance sum of the pixels in the given block, multiplied by
+     * LuminancePlane.LUMINANCE_SCALE.
+     *
+     * @param x           the col of the top left pixel of the block.
+     * @param y           the row of the top left pixel of the block.
+     * @param blockWidth  the width of the block.
+     * @param blockHeight the height of the block.
+     * @return the scaled luminance sum of the pixels in the block.
+     */
+    public long getScaledBlockSum(int x, int y, int blockWidth, int blockHeight) {
+        //the part of the block inside the content, in content coordinates
+        int left = Math.max(x - contentX, 0);
+        int right = Math.min(x + blockWidth - contentX, contentWidth);
+        int top = Math.max(y - contentY, 0);
+        int bottom = Math.min(y + blockHeight - contentY, contentHeight);
+        long contentArea = 0, contentSum = 0;
+        if (left < right && top < bottom) {
+            contentArea = (long) (right - left) * (bottom - top);
+            int topRow = top * (contentWidth + 1);
+            int bottomRow = bottom * (contentWidth + 1);
+            contentSum = sums[bottomRow + right] - sums[bottomRow + left] - sums[topRow + right] +
+                    sums[topRow + left];
+        }
+        long paddingArea = (long) blockWidth * blockHeight - contentArea;
+        return contentSum + paddingArea * LuminancePlane.PADDING_LUMINANCE;
+    }
+
+    /**
+     * returns the average luminance of the pixels in the given block.
+     *
+     * @param x           the col of the top left pixel of the block.
+     * @param y           the row of the top left pixel of the block.
+     * @param blockWidth  the width of the block.
+     * @param blockHeight the height of the block.
+     * @return the average luminance (0-255) of the pixels in the block.
+     */
+    public double getBlockAverage(int x, int y, int blockWidth, int blockHeight) {
+        return getBlockSum(x, y, blockWidth, blockHeight) / ((double) blockWidth * blockHeight);
+    }
+
+    /**
+     * @return the width of the summed image.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the summed image.
+     */
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,65 @@
+package image;
+
+/**
+ * A package-private interface of the package image.
+ * the primitive-array loops that dominate building the luminance of an image: converting packed pixels
+ * to luminance, and summing 2x2 blocks of luminance into the next level of a LuminancePyramid.
+ * The implementation is chosen once per process. VectorLumaKernels (SIMD, with jdk.incubator.vector)
+ * is used when it was compiled in (the vector Maven profile) and the JVM runs with
+ * --add-modules jdk.incubator.vector, otherwise the scalar loops of ScalarLumaKernels are used. Both
+ * give exactly the same values.
+ */
+interface LumaKernels {
+    /**
+     * the system property that selects the kernels: "scalar" forces the scalar ones.
+     */
+    String KERNELS_PROPERTY = "ascii_art.kernels";
+    String SCALAR_KERNELS = "scalar";
+    String VECTOR_KERNELS_CLASS = "image.VectorLumaKernels";
+    /**
+     * the kernels of this process.
+     */
+    LumaKernels SELECTED = select();
+
+    /**
+     * converts packed ARGB pixels to their scaled luminance (see LuminancePlane.toLuminance).
+     *
+     * @param pixels    the packed pixels.
+     * @param luminance the array to write the luminance of each pixel to.
+     * @param length    the number of pixels to convert, from index 0.
+     */
+    void toLuminance(int[] pixels, int[] luminance, int length);
+
+    /**
+     * sums the 2x2 blocks of two adjacent rows: sums[out + i] is the sum of values[top + 2i],
+     * values[top + 2i + 1], values[bottom + 2i] and values[bottom + 2i + 1]. The sums must fit in an int.
+     *
+     * @param values  the values of both rows.
+     * @param top     the index of the first value of the upper row.
+     * @param bottom  the index of the first value of the lower row.
+     * @param sums    the array to write the sums to.
+     * @param out     the index of the first sum.
+     * @param numSums the number of blocks to sum.
+     */
+    void sumBlocks(int[] values, int top, int bottom, int[] sums, int out, int numSums);
+
+    /**
+     * @return a short name of the kernels, for reports.
+     */
+    String getName();
+
+    /**
+     * @return the vector kernels if they are available and not disabled by KERNELS_PROPERTY, otherwise
+     * the scalar ones.
+     */
+    private static LumaKernels select() {
+        if (!SCALAR_KERNELS.equals(System.getProperty(KERNELS_PROPERTY))) {
+            try {
+                return (LumaKernels) Class.forName(VECTOR_KERNELS_CLASS).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                //not compiled in, or jdk.incubator.vector isn't in the boot layer: fall back to scalar loops
+            }
+        }
+        return new ScalarLumaKernels();
+    }
+}
@@ -0,0 +1,173 @@
+package image;
+
+/**
+ * the grey-scale version of an image: one primitive luminance value per pixel, computed once from the
+ * packed pixels so that renders never go back to the colors.
+ * The luminance of a pixel is 0.2126*red + 0.7152*green + 0.0722*blue (Rec. 709). It is kept in fixed
+ * point, multiplied by LUMINANCE_SCALE, which makes it an exact int and lets sums of it stay exact.
+ * Only the content of the image is stored: the pixels outside of the content rectangle (the white
+ * padding of a FileImage) all have the luminance PADDING_LUMINANCE.
+ */
+public class LuminancePlane {
+    /**
+     * the factor between the values of the plane and the luminance (0-255) they represent.
+     */
+    public static final int LUMINANCE_SCALE = 10000;
+    /**
+     * the scaled luminance of the padding around the content, which is white.
+     */
+    public static final int PADDING_LUMINANCE = toLuminance(0xFFFFFFFF);
+    /**
+     * private static final fields- the Rec. 709 weights of each channel, multiplied by LUMINANCE_SCALE,
+     * and the bit offsets and mask of the channels in a packed ARGB pixel.
+     */
+    private static final int RED_WEIGHT = 2126;
+    private static final int GREEN_WEIGHT = 7152;
+    private static final int BLUE_WEIGHT = 722;
+    private static final int RED_SHIFT = 16;
+    private static final int GREEN_SHIFT = 8;
+    private static final int CHANNEL_MASK = 0xFF;
+    /**
+     * private final fields- width, height, the content rectangle, values (the content only, row after
+     * row, index = (y - contentY) * contentWidth + x - contentX).
+     */
+    private final int width;
+    private final int height;
+    private final int contentX;
+    private final int contentY;
+    private final int contentWidth;
+    private final int contentHeight;
+    private final int[] values;
+
+    /**
+     * constructor- converts every pixel of img to its luminance. All of img is content.
+     *
+     * @param img the image to convert.
+     */
+    LuminancePlane(Image img) {
+        width = contentWidth = img.getWidth();
+        height = contentHeight = img.getHeight();
+        contentX = contentY = 0;
+        values = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                values[y * width + x] = toLuminance(img.getRawPixel(x, y));
+            }
+        }
+    }
+
+    /**
+     * constructor- converts the packed pixels of the content of an image to their luminance, with the
+     * LumaKernels of the process.
+     *
+     * @param width         the width of the whole image.
+     * @param height        the height of the whole image.
+     * @param pixels        the packed ARGB pixels of the content, row after row.
+     * @param contentX      the col of the first pixel of the content.
+     * @param contentY      the row of the first pixel of the content.
+     * @param contentWidth  the width of the content.
+     * @param contentHeight the height of the content.
+     */
+    LuminancePlane(int width, int height, int[] pixels, int contentX, int contentY, int contentWidth,
+                   int contentHeight) {
+        this.width = width;
+        this.height = height;
+        this.contentX = contentX;
+        this.contentY = contentY;
+        this.contentWidth = contentWidth;
+        this.contentHeight = contentHeight;
+        values = new int[pixels.length];
+        LumaKernels.SELECTED.toLuminance(pixels, values, pixels.length);
+    }
+
+    /**
+     * converts a packed ARGB pixel to its scaled luminance.
+     *
+     * @param rgb the packed pixel.
+     * @return the luminance of the pixel, multiplied by LUMINANCE_SCALE.
+     */
+    static int toLuminance(int rgb) {
+        return ((rgb >> RED_SHIFT) & CHANNEL_MASK) * RED_WEIGHT +
+                ((rgb >> GREEN_SHIFT) & CHANNEL_MASK) * GREEN_WEIGHT +
+                (rgb & CHANNEL_MASK) * BLUE_WEIGHT;
+    }
+
+    /**
+     * returns the luminance of the pixel in the given coordinate.
+     *
+     * @param x col coordinate.
+     * @param y row coordinate.
+     * @return the luminance (0-255) of the pixel in (y,x).
+     */
+    public double getLuminance(int x, int y) {
+        return (double) getScaledLuminance(x, y) / LUMINANCE_SCALE;
+    }
+
+    /**
+     * returns the luminance of the pixel in the given coordinate, multiplied by LUMINANCE_SCALE.
+     *
+     * @param x col coordinate.
+     * @param y row coordinate.
+     * @return the scaled luminance of the pixel in (y,x).
+     */
+    public int getScaledLuminance(int x, int y) {
+        int contentCol = x - contentX, contentRow = y - contentY;
+        if (contentCol < 0 || contentRow < 0 || contentCol >= contentWidth || contentRow >= contentHeight) {
+            return PADDING_LUMINANCE;
+        }
+        return values[contentRow * contentWidth + contentCol];
+    }
+
+    /**
+     * returns the backing array of the plane, for loops that can't afford a call per pixel. The values
+     * are the luminance of the content multiplied by LUMINANCE_SCALE, row after row. The array must not
+     * be changed.
+     *
+     * @return the scaled luminance of the content (index = (y - contentY) * contentWidth + x - contentX).
+     */
+    public int[] getValues() {
+        return values;
+    }
+
+    /**
+     * @return the col of the first pixel of the content.
+     */
+    public int getContentX() {
+        return contentX;
+    }
+
+    /**
+     * @return the row of the first pixel of the content.
+     */
+    public int getContentY() {
+        return contentY;
+    }
+
+    /**
+     * @return the width of the content.
+     */
+    public int getContentWidth() {
+        return contentWidth;
+    }
+
+    /**
+     * @return the height of the content.
+     */
+    public int getContentHeight() {
+        return contentHeight;
+    }
+
+    /**
+     * @return the width of the plane.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the plane.
+     */
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,168 @@
+package image;
+
+/**
+ * a mipmap of the luminance of an image: level 0 is the LuminancePlane itself, and every pixel of level
+ * k is the sum of a 2x2 block of level k-1, so it holds the luminance sum of a square block of 2^k pixels
+ * of the image. A grid of square cells of size 2^k is then read straight from level k, one value per
+ * cell, without going back to the pixels.
+ * The sums are exact (in the fixed point of LuminancePlane), so a cell read from the pyramid has exactly
+ * the brightness IntegralImage gives it. Like the plane, each level only stores the pixels that overlap
+ * the content of the image; the others are padding. Levels whose sums fit in an int are stored as ints,
+ * which keeps the whole pyramid at about 4/3 of the memory of the plane. When the stored pixels of a
+ * level are aligned to its 2x2 blocks, the next level is summed by the LumaKernels, a pair of rows at a
+ * time.
+ */
+public class LuminancePyramid {
+    /**
+     * the largest luminance sum that a level stored in an int can hold.
+     */
+    private static final long MAX_NARROW_SUM = Integer.MAX_VALUE;
+    /**
+     * private final fields- the number of levels and, for each level, the rectangle of stored pixels and
+     * the sums of those pixels, row after row, in narrowSums if they fit in an int and in wideSums
+     * otherwise. Level 0 is the content of the plane, its narrowSums is the array of the plane.
+     */
+    private final int numLevels;
+    private final int[] levelX;
+    private final int[] levelY;
+    private final int[] levelWidth;
+    private final int[] levelHeight;
+    private final int[][] narrowSums;
+    private final long[][] wideSums;
+
+    /**
+     * constructor- builds every level from the one below it, in a single pass over each level.
+     *
+     * @param plane the luminance of the image, level 0 of the pyramid.
+     */
+    LuminancePyramid(LuminancePlane plane) {
+        numLevels = countLevels(plane.getWidth(), plane.getHeight());
+        levelX = new int[numLevels];
+        levelY = new int[numLevels];
+        levelWidth = new int[numLevels];
+        levelHeight = new int[numLevels];
+        narrowSums = new int[numLevels][];
+        wideSums = new long[numLevels][];
+        levelX[0] = plane.getContentX();
+        levelY[0] = plane.getContentY();
+        levelWidth[0] = plane.getContentWidth();
+        levelHeight[0] = plane.getContentHeight();
+        narrowSums[0] = plane.getValues();
+        for (int level = 1; level < numLevels; level++) {
+            buildLevel(level);
+        }
+    }
+
+    /**
+     * returns the number of levels of the pyramid of an image: level k exists as long as 2^k divides
+     * both dimensions of the image.
+     *
+     * @param width  the width of the image.
+     * @param height the height of the image.
+     * @return the number of levels, at least 1 (the image itself).
+     */
+    public static int countLevels(int width, int height) {
+        int levels = 1;
+        while (isCellSize(width, levels) && isCellSize(height, levels)) {
+            levels++;
+        }
+        return levels;
+    }
+
+    /**
+     * @return true if cells of size 2^level fit a whole number of times in size.
+     */
+    private static boolean isCellSize(int size, int level) {
+        int cellSize = 1 << level;
+        return cellSize > 0 && cellSize <= size && size % cellSize == 0;
+    }
+
+    /**
+     * sums the 2x2 blocks of the level below into a level. Only the pixels that overlap the content are
+     * stored.
+     *
+     * @param level the level to build, above 0.
+     */
+    private void buildLevel(int level) {
+        int below = level - 1;
+        int first = levelX[below] >> 1;
+        int top = levelY[below] >> 1;
+        int width = 0, height = 0;
+        if (levelWidth[below] > 0 && levelHeight[below] > 0) {
+            width = ((levelX[below] + levelWidth[below] - 1) >> 1) - first + 1;
+            height = ((levelY[below] + levelHeight[below] - 1) >> 1) - top + 1;
+        }
+        levelX[level] = first;
+        levelY[level] = top;
+        levelWidth[level] = width;
+        levelHeight[level] = height;
+        boolean narrow = (long) LuminancePlane.PADDING_LUMINANCE << (2 * level) <= MAX_NARROW_SUM;
+        if (narrow) {
+            narrowSums[level] = new int[width * height];
+        } else {
+            wideSums[level] = new long[width * height];
+        }
+        boolean aligned = ((levelX[below] | levelY[below] | levelWidth[below] | levelHeight[below]) & 1) == 0;
+        if (narrow && aligned) {
+            //every stored pixel of this level is a whole 2x2 block of stored pixels of the level below
+            for (int row = 0; row < height; row++) {
+                int upper = 2 * row * levelWidth[below];
+                LumaKernels.SELECTED.sumBlocks(narrowSums[below], upper, upper + levelWidth[below],
+                        narrowSums[level], row * width, width);
+            }
+            return;
+        }
+        for (int row = 0; row < height; row++) {
+            int y = 2 * (top + row);
+            for (int col = 0; col < width; col++) {
+                int x = 2 * (first + col);
+                long sum = getScaledSum(level - 1, x, y) + getScaledSum(level - 1, x + 1, y) +
+                        getScaledSum(level - 1, x, y + 1) + getScaledSum(level - 1, x + 1, y + 1);
+                if (narrow) {
+                    narrowSums[level][row * width + col] = (int) sum;
+                } else {
+                    wideSums[level][row * width + col] = sum;
+                }
+            }
+        }
+    }
+
+    /**
+     * returns the exact luminance sum of a pixel of a level, multiplied by LuminancePlane.LUMINANCE_SCALE.
+     *
+     * @param level the level, between 0 and getNumLevels() - 1.
+     * @param x     col coordinate in the level.
+     * @param y     row coordinate in the level.
+     * @return the scaled luminance sum of the block of 2^level by 2^level pixels of the image at
+     * (x * 2^level, y * 2^level).
+     */
+    public long getScaledSum(int level, int x, int y) {
+        int col = x - levelX[level], row = y - levelY[level];
+        if (col < 0 || row < 0 || col >= levelWidth[level] || row >= levelHeight[level]) {
+            return (long) LuminancePlane.PADDING_LUMINANCE << (2 * level);
+        }
+        int index = row * levelWidth[level] + col;
+        return narrowSums[level] != null ? narrowSums[level][index] : wideSums[level][index];
+    }
+
+    /**
+     * returns the average luminance of a pixel of a level, the same value IntegralImage.getBlockAverage
+     * gives for its block of the image.
+     *
+     * @param level the level, between 0 and getNumLevels() - 1.
+     * @param x     col coordinate in the level.
+     * @param y     row coordinate in the level.
+     * @return the average luminance (0-255) of the block of the image the pixel covers.
+     */
+    public double getAverage(int level, int x, int y) {
+        double cellSize = 1 << level;
+        return (double) getScaledSum(level, x, y) / LuminancePlane.LUMINANCE_SCALE / (cellSize * cellSize);
+    }
+
+    /**
+     * @return the number of levels, including level 0.
+     */
+    public int getNumLevels() {
+        return numLevels;
+    }
+}
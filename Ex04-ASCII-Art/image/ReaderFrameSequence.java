@@ -0,0 +1,196 @@
+package image;
+
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * A package-private class of the package image.
+ * the frames of a single image file, decoded one at a time by its ImageReader: all the frames of an
+ * animated GIF, or the only frame of a still image.
+ * The frames of a GIF only cover the part of the logical screen that changed, so they are drawn on a
+ * canvas of the size of the logical screen, following the disposal method of the previous frame. The
+ * canvas starts white, and "restore to background" restores white, the color of the padding.
+ */
+class ReaderFrameSequence implements FrameSequence {
+    /**
+     * private static final fields- the names of the GIF metadata formats, nodes and attributes used to
+     * place and dispose frames.
+     */
+    private static final String GIF_STREAM_FORMAT = "javax_imageio_gif_stream_1.0";
+    private static final String GIF_IMAGE_FORMAT = "javax_imageio_gif_image_1.0";
+    private static final String SCREEN_NODE = "LogicalScreenDescriptor";
+    private static final String SCREEN_WIDTH = "logicalScreenWidth";
+    private static final String SCREEN_HEIGHT = "logicalScreenHeight";
+    private static final String DESCRIPTOR_NODE = "ImageDescriptor";
+    private static final String LEFT = "imageLeftPosition";
+    private static final String TOP = "imageTopPosition";
+    private static final String CONTROL_NODE = "GraphicControlExtension";
+    private static final String DISPOSAL = "disposalMethod";
+    private static final String RESTORE_TO_BACKGROUND = "restoreToBackgroundColor";
+    private static final String RESTORE_TO_PREVIOUS = "restoreToPrevious";
+    /**
+     * private final fields- the reader and its input, and the canvas frames are drawn on.
+     */
+    private final ImageInputStream input;
+    private final ImageReader reader;
+    private final BufferedImage canvas;
+    /**
+     * the index of the next frame, how the last frame is disposed of and where it was drawn, and the
+     * canvas from before it was drawn (only kept for "restore to previous").
+     */
+    private int nextIndex;
+    private String lastDisposal;
+    private Rectangle lastBounds;
+    private BufferedImage beforeLast;
+
+    /**
+     * constructor- opens the file and reads the size of the canvas, without decoding any frame.
+     *
+     * @param filename the name of the file containing the image.
+     * @throws IOException if the file couldn't be opened or no reader supports its format.
+     */
+    ReaderFrameSequence(String filename) throws IOException {
+        input = ImageIO.createImageInputStream(new File(filename));
+        if (input == null) {
+            throw new IOException("Couldn't open " + filename);
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            input.close();
+            throw new IOException("Unsupported image format: " + filename);
+        }
+        reader = readers.next();
+        reader.setInput(input, true, false);
+        int width = reader.getWidth(0), height = reader.getHeight(0);
+        Node screen = findNode(reader.getStreamMetadata(), GIF_STREAM_FORMAT, SCREEN_NODE);
+        if (screen != null && getInt(screen, SCREEN_WIDTH) > 0 && getInt(screen, SCREEN_HEIGHT) > 0) {
+            width = getInt(screen, SCREEN_WIDTH);
+            height = getInt(screen, SCREEN_HEIGHT);
+        }
+        canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        clear(new Rectangle(width, height));
+    }
+
+    /**
+     * decodes the next frame and draws it on the canvas.
+     *
+     * @return the canvas with the next frame, or null after the last one.
+     * @throws IOException if the frame couldn't be read.
+     */
+    @Override
+    public Image next() throws IOException {
+        IIOImage frame;
+        try {
+            frame = reader.readAll(nextIndex, null);
+        } catch (IndexOutOfBoundsException e) {
+            return null;
+        }
+        disposeLast();
+        BufferedImage frameImage = (BufferedImage) frame.getRenderedImage();
+        Node descriptor = findNode(frame.getMetadata(), GIF_IMAGE_FORMAT, DESCRIPTOR_NODE);
+        Node control = findNode(frame.getMetadata(), GIF_IMAGE_FORMAT, CONTROL_NODE);
+        int left = descriptor == null ? 0 : getInt(descriptor, LEFT);
+        int top = descriptor == null ? 0 : getInt(descriptor, TOP);
+        lastDisposal = control == null ? null : getAttribute(control, DISPOSAL);
+        lastBounds = new Rectangle(left, top, frameImage.getWidth(), frameImage.getHeight());
+        beforeLast = RESTORE_TO_PREVIOUS.equals(lastDisposal) ? copy(canvas) : null;
+
+        Graphics2D graphics = canvas.createGraphics();
+        graphics.drawImage(frameImage, left, top, null);
+        graphics.dispose();
+        nextIndex++;
+        return new FileImage(canvas);
+    }
+
+    /**
+     * releases the reader and closes the file.
+     *
+     * @throws IOException if the file couldn't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        reader.dispose();
+        input.close();
+    }
+
+    /**
+     * disposes of the last frame, as its disposal method says, before the next one is drawn.
+     */
+    private void disposeLast() {
+        if (RESTORE_TO_BACKGROUND.equals(lastDisposal)) {
+            clear(lastBounds);
+        } else if (RESTORE_TO_PREVIOUS.equals(lastDisposal)) {
+            Graphics2D graphics = canvas.createGraphics();
+            graphics.drawImage(beforeLast, 0, 0, null);
+            graphics.dispose();
+        }
+    }
+
+    /**
+     * paints a part of the canvas white.
+     *
+     * @param bounds the part to paint.
+     */
+    private void clear(Rectangle bounds) {
+        Graphics2D graphics = canvas.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fill(bounds);
+        graphics.dispose();
+    }
+
+    /**
+     * @return a copy of im.
+     */
+    private static BufferedImage copy(BufferedImage im) {
+        BufferedImage copy = new BufferedImage(im.getWidth(), im.getHeight(), im.getType());
+        Graphics2D graphics = copy.createGraphics();
+        graphics.drawImage(im, 0, 0, null);
+        graphics.dispose();
+        return copy;
+    }
+
+    /**
+     * @return the child of the root of metadata with the given name, or null if metadata isn't in the
+     * given format or has no such child.
+     */
+    private static Node findNode(IIOMetadata metadata, String format, String name) {
+        if (metadata == null || !format.equals(metadata.getNativeMetadataFormatName())) {
+            return null;
+        }
+        for (Node child = metadata.getAsTree(format).getFirstChild(); child != null;
+             child = child.getNextSibling()) {
+            if (child.getNodeName().equals(name)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the value of an attribute of node, or null if it has no such attribute.
+     */
+    private static String getAttribute(Node node, String name) {
+        NamedNodeMap attributes = node.getAttributes();
+        Node attribute = attributes == null ? null : attributes.getNamedItem(name);
+        return attribute == null ? null : attribute.getNodeValue();
+    }
+
+    /**
+     * @return the value of an int attribute of node, or 0 if it has no such attribute.
+     */
+    private static int getInt(Node node, String name) {
+        String value = getAttribute(node, name);
+        return value == null ? 0 : Integer.parseInt(value);
+    }
+}
@@ -0,0 +1,364 @@
+package image;
+
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * A package-private class of the package image.
+ * <p>
+ * decodes an image from the top down in a single pass. One ImageReader.read call runs on a background
+ * thread, into a destination whose data buffer is a ring of rows: the reader's writes to a row block
+ * until the consumer has released the rows the ring slot still holds, so memory is proportional to the
+ * ring and not to the image, and every row is decoded exactly once.
+ * This relies on the reader writing the destination row after row, which is true for non-interlaced PNG
+ * and for sequential (non-progressive) JPEG, so only those are streamed.
+ */
+class RowStream implements AutoCloseable {
+    /**
+     * private static final fields- the formats whose reader may write rows in order, and the metadata
+     * names used to tell an interlaced PNG or a progressive JPEG, whose rows are written in passes.
+     */
+    private static final String PNG_FORMAT = "png";
+    private static final String JPEG_FORMAT = "jpeg";
+    private static final String PNG_METADATA_FORMAT = "javax_imageio_png_1.0";
+    private static final String PNG_HEADER = "IHDR";
+    private static final String PNG_INTERLACE = "interlaceMethod";
+    private static final String PNG_NOT_INTERLACED = "none";
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+    private static final String JPEG_FRAME_HEADER = "sof";
+    private static final String JPEG_PROCESS = "process";
+    private static final String JPEG_PROGRESSIVE = "2";
+    /**
+     * private final fields- the reader and its input, the destination image, the number of rows in the ring, the
+     * number of buffer elements in a row, the height of the image and the ring itself.
+     */
+    private final ImageReader reader;
+    private final ImageInputStream input;
+    private final BufferedImage destination;
+    private final int capacity;
+    private final int stride;
+    private final int height;
+    private final int[] ring;
+    private final Thread decoder;
+    /**
+     * the state shared with the decoding thread, guarded by this: the number of rows fully written, the
+     * first row still needed by the consumer, whether the stream was closed, and the decoding failure.
+     */
+    private int completeRows;
+    private int releasedRows;
+    private boolean closed;
+    private Throwable failure;
+    /**
+     * the row the decoding thread is writing. only touched by that thread.
+     */
+    private int currentRow;
+
+    /**
+     * constructor- allocates the ring and starts decoding.
+     *
+     * @param reader      the reader, with its input set to the start of the file.
+     * @param input       the input of the reader.
+     * @param type        the layout of the decoded pixels.
+     * @param width       the width of the image.
+     * @param height      the height of the image.
+     * @param stride      the number of buffer elements in a row.
+     * @param capacity    the number of rows in the ring.
+     */
+    private RowStream(ImageReader reader, ImageInputStream input, ImageTypeSpecifier type, int width,
+                      int height, int stride, int capacity) {
+        this.reader = reader;
+        this.input = input;
+        this.height = height;
+        this.stride = stride;
+        this.capacity = capacity;
+        ring = new int[capacity * stride];
+        SampleModel sampleModel = type.getSampleModel(width, height);
+        ColorModel colorModel = type.getColorModel();
+        destination = new BufferedImage(colorModel,
+                Raster.createWritableRaster(sampleModel, new RingBuffer(sampleModel.getDataType()), null),
+                colorModel.isAlphaPremultiplied(), null);
+        currentRow = -1;
+        decoder = new Thread(this::decode, "ascii-art-row-stream");
+        decoder.setDaemon(true);
+        decoder.start();
+    }
+
+    /**
+     * starts decoding the first image of the given file in a single pass, if its format is one whose
+     * reader writes rows in order. The file is decoded by a reader and an input of its own.
+     *
+     * @param filename the name of the file.
+     * @param reader   a reader of the file, with its input set (metadata not ignored), used to read the
+     *                 header of the image.
+     * @param minRows  the minimal number of rows the ring must hold.
+     * @return the stream, or null if the image can't be decoded in a single pass.
+     * @throws IOException if the file couldn't be opened or the header of the image couldn't be read.
+     */
+    static RowStream open(String filename, ImageReader reader, int minRows) throws IOException {
+        if (!isSequential(reader)) {
+            return null;
+        }
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        ImageTypeSpecifier type = reader.getRawImageType(0);
+        if (type == null) {
+            Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+            if (!types.hasNext()) {
+                return null;
+            }
+            type = types.next();
+        }
+        int stride = getStride(type.getSampleModel(width, 1));
+        int capacity = Math.min(height, minRows + 1);
+        if (stride <= 0 || (long) stride * height > Integer.MAX_VALUE ||
+                (long) stride * capacity > Integer.MAX_VALUE) {
+            return null;
+        }
+        ImageInputStream input = ImageIO.createImageInputStream(new File(filename));
+        if (input == null) {
+            throw new IOException("Couldn't open " + filename);
+        }
+        ImageReader decoder = reader.getOriginatingProvider().createReaderInstance();
+        decoder.setInput(input, true, true);
+        return new RowStream(decoder, input, type, width, height, stride, capacity);
+    }
+
+    /**
+     * @param reader a reader of the image.
+     * @return true if the reader writes the rows of the image in order, from the top down.
+     * @throws IOException if the header of the image couldn't be read.
+     */
+    private static boolean isSequential(ImageReader reader) throws IOException {
+        String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+        IIOMetadata metadata = reader.getImageMetadata(0);
+        if (metadata == null) {
+            return false;
+        }
+        switch (format) {
+            case PNG_FORMAT:
+                return PNG_NOT_INTERLACED.equals(
+                        getAttribute(metadata.getAsTree(PNG_METADATA_FORMAT), PNG_HEADER, PNG_INTERLACE));
+            case JPEG_FORMAT:
+                String process = getAttribute(metadata.getAsTree(JPEG_METADATA_FORMAT), JPEG_FRAME_HEADER,
+                        JPEG_PROCESS);
+                return process != null && !process.equals(JPEG_PROGRESSIVE);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param node      the root of a metadata tree.
+     * @param name      the name of a node in the tree.
+     * @param attribute the name of an attribute of that node.
+     * @return the value of the attribute of the first node with the given name, or null if there's none.
+     */
+    private static String getAttribute(Node node, String name, String attribute) {
+        if (node.getNodeName().equals(name)) {
+            Node value = node.getAttributes().getNamedItem(attribute);
+            return value == null ? null : value.getNodeValue();
+        }
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            String value = getAttribute(child, name, attribute);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param sampleModel the layout of a single row of pixels.
+     * @return the number of buffer elements in a row, or 0 if the layout isn't a single bank of rows of
+     * consecutive elements.
+     */
+    private static int getStride(SampleModel sampleModel) {
+        if (sampleModel instanceof ComponentSampleModel) {
+            for (int bank : ((ComponentSampleModel) sampleModel).getBankIndices()) {
+                if (bank != 0) {
+                    return 0;
+                }
+            }
+            return ((ComponentSampleModel) sampleModel).getScanlineStride();
+        }
+        if (sampleModel instanceof SinglePixelPackedSampleModel) {
+            return ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride();
+        }
+        if (sampleModel instanceof MultiPixelPackedSampleModel) {
+            return ((MultiPixelPackedSampleModel) sampleModel).getScanlineStride();
+        }
+        return 0;
+    }
+
+    /**
+     * @return the largest number of rows a single request can get. The ring holds one more row, which the
+     * decoder is writing while the requested ones are read.
+     */
+    int getMaxRows() {
+        return capacity == height ? height : capacity - 1;
+    }
+
+    /**
+     * @return the first row that can still be requested. Rows above it were dropped from the ring.
+     */
+    synchronized int getReleasedRows() {
+        return releasedRows;
+    }
+
+    /**
+     * waits for the rows [firstRow, firstRow + rows) to be decoded, and releases every row above firstRow,
+     * so the decoder may reuse their place in the ring.
+     * The returned image is a view over the ring and is valid until the next call.
+     *
+     * @param firstRow the first row, at least getReleasedRows().
+     * @param rows     the number of rows, between 1 and getMaxRows().
+     * @return the rows, as an image of the width of the image and the given height.
+     * @throws IOException if the decoding failed.
+     */
+    synchronized BufferedImage getRows(int firstRow, int rows) throws IOException {
+        if (firstRow < releasedRows || rows > getMaxRows()) {
+            throw new IllegalArgumentException("Rows " + firstRow + "-" + (firstRow + rows) +
+                    " can't be served by the ring");
+        }
+        releasedRows = firstRow;
+        notifyAll();
+        try {
+            while (completeRows < firstRow + rows && failure == null && !closed) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IIOException("Interrupted while decoding", e);
+        }
+        if (completeRows < firstRow + rows) {
+            throw new IIOException("Failed to decode the image", failure);
+        }
+        return destination.getSubimage(0, firstRow, destination.getWidth(), rows);
+    }
+
+    /**
+     * the body of the decoding thread- reads the whole image into the ring.
+     */
+    private void decode() {
+        try {
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setDestination(destination);
+            reader.read(0, param);
+            synchronized (this) {
+                completeRows = height;
+                notifyAll();
+            }
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                failure = e;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * called by the decoding thread when it moves on to another row. Every row above it is complete.
+     * Blocks while the ring slot of the row still holds a row the consumer may request.
+     *
+     * @param row the row the reader is about to write.
+     */
+    private synchronized void enterRow(int row) {
+        if (row < currentRow) {
+            throw new IllegalStateException("The reader doesn't write rows in order");
+        }
+        completeRows = Math.max(completeRows, row);
+        notifyAll();
+        try {
+            while (row >= releasedRows + capacity && !closed) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+        if (closed) {
+            throw new IllegalStateException("The stream was closed");
+        }
+        currentRow = row;
+    }
+
+    /**
+     * stops decoding, waits for the decoding thread to finish and closes the file.
+     *
+     * @throws IOException if the file couldn't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        reader.abort();
+        try {
+            decoder.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        reader.dispose();
+        input.close();
+    }
+
+    /**
+     * the data buffer of the destination. Element i of the image is kept in the ring slot of its row.
+     */
+    private class RingBuffer extends DataBuffer {
+        /**
+         * constructor- a buffer for the whole image, of the given data type.
+         *
+         * @param dataType the type of the elements, one of the DataBuffer.TYPE_ constants.
+         */
+        RingBuffer(int dataType) {
+            super(dataType, stride * height);
+        }
+
+        /**
+         * @param bank the bank, always 0.
+         * @param i    the index of the element in the image.
+         * @return the element.
+         */
+        @Override
+        public int getElem(int bank, int i) {
+            return ring[(i / stride) % capacity * stride + i % stride];
+        }
+
+        /**
+         * sets an element, waiting for room in the ring if it starts a new row.
+         *
+         * @param bank the bank, always 0.
+         * @param i    the index of the element in the image.
+         * @param val  the element.
+         */
+        @Override
+        public void setElem(int bank, int i, int val) {
+            int row = i / stride;
+            if (row != currentRow) {
+                enterRow(row);
+            }
+            ring[row % capacity * stride + i % stride] = val;
+        }
+    }
+}
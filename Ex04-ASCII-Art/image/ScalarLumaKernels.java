@@ -0,0 +1,52 @@
+package image;
+
+/**
+ * A package-private class of the package image.
+ * the plain loops of LumaKernels, used when the Vector API isn't available.
+ */
+final class ScalarLumaKernels implements LumaKernels {
+    /**
+     * the name of these kernels.
+     */
+    private static final String NAME = "scalar";
+
+    /**
+     * converts packed ARGB pixels to their scaled luminance, one pixel at a time.
+     *
+     * @param pixels    the packed pixels.
+     * @param luminance the array to write the luminance of each pixel to.
+     * @param length    the number of pixels to convert, from index 0.
+     */
+    @Override
+    public void toLuminance(int[] pixels, int[] luminance, int length) {
+        for (int i = 0; i < length; i++) {
+            luminance[i] = LuminancePlane.toLuminance(pixels[i]);
+        }
+    }
+
+    /**
+     * sums the 2x2 blocks of two adjacent rows, one block at a time.
+     *
+     * @param values  the values of both rows.
+     * @param top     the index of the first value of the upper row.
+     * @param bottom  the index of the first value of the lower row.
+     * @param sums    the array to write the sums to.
+     * @param out     the index of the first sum.
+     * @param numSums the number of blocks to sum.
+     */
+    @Override
+    public void sumBlocks(int[] values, int top, int bottom, int[] sums, int out, int numSums) {
+        for (int i = 0; i < numSums; i++) {
+            sums[out + i] = values[top + 2 * i] + values[top + 2 * i + 1] + values[bottom + 2 * i] +
+                    values[bottom + 2 * i + 1];
+        }
+    }
+
+    /**
+     * @return the name of these kernels.
+     */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
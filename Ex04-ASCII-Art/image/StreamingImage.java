@@ -0,0 +1,216 @@
+package image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.logging.Logger;
+
+/**
+ * an image that is never decoded as a whole, so memory is proportional to a band of rows and not to the
+ * image. The geometry is the one of FileImage: each dimension is padded (virtually) to a power of 2, with
+ * the original image in the middle.
+ * Reading bands from the top down is the intended access pattern. For non-interlaced PNG and for JPEG the
+ * file is then decoded once, forward only, through a RowStream. Other formats (and bands that go back
+ * up) are decoded through an ImageReader source region, which is cheap for tiled or striped formats such
+ * as TIFF, but makes most readers decode the file from its start on every band.
+ * Random access to pixels works, but decodes a band of DEFAULT_BAND_HEIGHT rows on every miss.
+ */
+public class StreamingImage implements Image, AutoCloseable {
+    /**
+     * the number of rows decoded for pixel access outside of getBand.
+     */
+    private static final int DEFAULT_BAND_HEIGHT = 64;
+    /**
+     * the minimal number of rows kept by the forward decoder. It keeps at least two bands of the first
+     * requested height, so bands one row taller than the first still fit.
+     */
+    private static final int MIN_STREAM_ROWS = 256;
+    /**
+     * private final fields- the file, the reader and its input, the padded width and height, the size of
+     * the original image and its offset inside the padded one.
+     */
+    private final String filename;
+    private final ImageInputStream input;
+    private final ImageReader reader;
+    private final int width;
+    private final int height;
+    private final int origWidth;
+    private final int origHeight;
+    private final int rowOffset;
+    private final int colOffset;
+    /**
+     * the band used for single pixel access, and its first row.
+     */
+    private Image currentBand;
+    private int currentBandRow;
+    /**
+     * the forward decoder, started on the first band (null if the format can't be decoded in one pass or
+     * the decoding failed). It decodes the file through a reader of its own.
+     */
+    private RowStream stream;
+    private boolean streamOpened;
+
+    /**
+     * constructor- opens the file and reads its dimensions, without decoding any pixel.
+     *
+     * @param filename the name of the file containing the image.
+     * @throws IOException if the file couldn't be opened or no reader supports its format.
+     */
+    public StreamingImage(String filename) throws IOException {
+        this.filename = filename;
+        input = ImageIO.createImageInputStream(new File(filename));
+        if (input == null) {
+            throw new IOException("Couldn't open " + filename);
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            input.close();
+            throw new IOException("Unsupported image format: " + filename);
+        }
+        reader = readers.next();
+        reader.setInput(input, false, false);
+        origWidth = reader.getWidth(0);
+        origHeight = reader.getHeight(0);
+        width = FileImage.getNextExp(origWidth);
+        height = FileImage.getNextExp(origHeight);
+        rowOffset = (height - origHeight) / 2;
+        colOffset = (width - origWidth) / 2;
+        currentBandRow = -1;
+    }
+
+    /**
+     * decodes the rows [y, y + bandHeight) of the (padded) image. Only the rows of the original image
+     * that fall inside the band are read from the file.
+     *
+     * @param y          the first row of the band.
+     * @param bandHeight the number of rows in the band.
+     * @return the band, as an in-memory image of width getWidth() and height bandHeight.
+     */
+    @Override
+    public synchronized Image getBand(int y, int bandHeight) {
+        int firstSourceRow = Math.max(0, y - rowOffset);
+        int lastSourceRow = Math.min(origHeight, y + bandHeight - rowOffset);
+        if (firstSourceRow >= lastSourceRow) {
+            return new FileImage(width, bandHeight, null, 0, 0);
+        }
+        int rows = lastSourceRow - firstSourceRow;
+        try {
+            if (!streamOpened) {
+                streamOpened = true;
+                stream = RowStream.open(filename, reader, Math.max(MIN_STREAM_ROWS, 2 * rows));
+            }
+            BufferedImage decoded = null;
+            if (stream != null && firstSourceRow >= stream.getReleasedRows() && rows <= stream.getMaxRows()) {
+                decoded = readStreamRows(firstSourceRow, rows);
+            }
+            if (decoded == null) {
+                decoded = readRegion(firstSourceRow, rows);
+            }
+            return new FileImage(width, bandHeight, decoded, firstSourceRow + rowOffset - y, colOffset);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * reads rows from the forward decoder. If the decoding failed, the decoder is dropped and every band
+     * from now on is read through a source region.
+     *
+     * @param firstSourceRow the first row, in the original image.
+     * @param rows           the number of rows.
+     * @return the rows, or null if the forward decoder failed.
+     * @throws IOException if the failed decoder couldn't be closed.
+     */
+    private BufferedImage readStreamRows(int firstSourceRow, int rows) throws IOException {
+        try {
+            return stream.getRows(firstSourceRow, rows);
+        } catch (IOException e) {
+            Logger.getGlobal().warning(String.format("Failed to decode %s in a single pass: %s",
+                    filename, e.getCause() == null ? e.getMessage() : e.getCause().getMessage()));
+            RowStream failed = stream;
+            stream = null;
+            failed.close();
+            return null;
+        }
+    }
+
+    /**
+     * decodes rows of the original image through an ImageReader source region.
+     *
+     * @param firstSourceRow the first row, in the original image.
+     * @param rows           the number of rows.
+     * @return the rows.
+     * @throws IOException if the rows couldn't be decoded.
+     */
+    private BufferedImage readRegion(int firstSourceRow, int rows) throws IOException {
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(0, firstSourceRow, origWidth, rows));
+        return reader.read(0, param);
+    }
+
+    /**
+     * returns the Color value in the coordinate(y,x) of the image.
+     *
+     * @param x col coordinate.
+     * @param y row coordinate.
+     * @return the Color value in the coordinate(y,x) in the image.
+     */
+    @Override
+    public Color getPixel(int x, int y) {
+        return new Color(getRawPixel(x, y));
+    }
+
+    /**
+     * returns the packed ARGB value in the coordinate(y,x) of the image, decoding the band that contains
+     * it if it isn't the current one.
+     *
+     * @param x col coordinate.
+     * @param y row coordinate.
+     * @return the packed ARGB value in the coordinate(y,x) in the image.
+     */
+    @Override
+    public synchronized int getRawPixel(int x, int y) {
+        if (currentBandRow < 0 || y < currentBandRow || y >= currentBandRow + currentBand.getHeight()) {
+            currentBandRow = y - y % DEFAULT_BAND_HEIGHT;
+            currentBand = getBand(currentBandRow, Math.min(DEFAULT_BAND_HEIGHT, height - currentBandRow));
+        }
+        return currentBand.getRawPixel(x, y - currentBandRow);
+    }
+
+    /**
+     * @return the (padded) width of the image.
+     */
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the (padded) height of the image.
+     */
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * releases the reader and closes the file.
+     *
+     * @throws IOException if the file couldn't be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (stream != null) {
+            stream.close();
+        }
+        reader.dispose();
+        input.close();
+    }
+}
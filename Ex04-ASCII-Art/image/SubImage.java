@@ -42,6 +42,18 @@ class SubImage implements Image {
         return img.getPixel(numCol * size + x, numRow * size + y);
     }
 
+    /**
+     * returns the packed ARGB value in the coordinate(y,x) of the image.
+     *
+     * @param x - col coordinate
+     * @param y - row coordinate.
+     * @return the packed ARGB value of the pixel in (y,x) in the img.
+     */
+    @Override
+    public int getRawPixel(int x, int y) {
+        return img.getRawPixel(numCol * size + x, numRow * size + y);
+    }
+
     /**
      * @return the width of the image
      */
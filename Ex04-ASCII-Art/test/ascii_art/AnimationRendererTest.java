@@ -0,0 +1,70 @@
+package ascii_art;
+
+import ascii_output.AnimationOutput;
+import image.FrameSequence;
+import image.Image;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * checks that the animation pipeline always ends: a stage that fails, even with an Error, still passes
+ * the end marker down, and run rethrows the failure instead of waiting forever.
+ */
+class AnimationRendererTest {
+    /**
+     * magic numbers- the size of the frames, the frames before the failure, and the test timeout.
+     */
+    private static final int FRAME_SIZE = 64;
+    private static final int FRAMES_BEFORE_FAILURE = 3;
+    private static final int TIMEOUT_SECONDS = 30;
+    private static final Character[] CHAR_SET = {' ', '.', '#'};
+
+    /**
+     * a decoder that runs out of memory after a few frames.
+     */
+    @Test
+    @Timeout(TIMEOUT_SECONDS)
+    void errorWhileDecodingEndsThePipeline() {
+        AtomicInteger written = new AtomicInteger();
+        FrameSequence frames = new FrameSequence() {
+            private int decoded;
+
+            @Override
+            public Image next() {
+                if (decoded++ == FRAMES_BEFORE_FAILURE) {
+                    throw new OutOfMemoryError("frame too large");
+                }
+                return Image.fromBufferedImage(new BufferedImage(FRAME_SIZE, FRAME_SIZE,
+                        BufferedImage.TYPE_INT_RGB));
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        AnimationOutput output = new AnimationOutput() {
+            @Override
+            public void begin(int width, int height, double fps) {
+            }
+
+            @Override
+            public void writeFrame(char[][] frame) {
+                written.incrementAndGet();
+            }
+
+            @Override
+            public void end() {
+            }
+        };
+        AnimationRenderer renderer = new AnimationRenderer(CHAR_SET, FRAME_SIZE / 2, 1, 1);
+        OutOfMemoryError error = assertThrows(OutOfMemoryError.class, () -> renderer.run(frames, output));
+        assertEquals("frame too large", error.getMessage());
+        assertEquals(FRAMES_BEFORE_FAILURE, written.get());
+    }
+}
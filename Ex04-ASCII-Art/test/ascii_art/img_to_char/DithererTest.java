@@ -0,0 +1,69 @@
+package ascii_art.img_to_char;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * checks that dithering gives exactly the same chars with any number of workers, including the
+ * Floyd-Steinberg wavefront, whose rows wait for the error of the rows above them.
+ */
+class DithererTest {
+    /**
+     * magic numbers- the seed, the grids (cols, rows), the worker counts and the repetitions of each
+     * parallel run.
+     */
+    private static final long SEED = 11;
+    private static final int[][] GRIDS = {{1, 1}, {16, 16}, {100, 3}, {3, 100}, {128, 96}};
+    private static final int[] NUM_WORKERS = {2, 3, 4, 8};
+    private static final int REPETITIONS = 5;
+    /**
+     * the brightness index of the char set, like the one of BrightnessImgCharMatcher.
+     */
+    private static final double[] SORTED_BRIGHTNESS = {0, 0.15, 0.4, 0.55, 0.9, 1};
+    private static final char[] SORTED_CHARS = {'@', '#', '+', ':', '.', ' '};
+
+    /**
+     * dithers random brightness grids with every mode, on one worker and then on several.
+     */
+    @Test
+    void ditheringDoesNotDependOnNumberOfWorkers() {
+        Random random = new Random(SEED);
+        Ditherer ditherer = new Ditherer(SORTED_BRIGHTNESS, SORTED_CHARS, DithererTest::findBestIndex);
+        for (int[] grid : GRIDS) {
+            double[] brightness = new double[grid[0] * grid[1]];
+            for (int i = 0; i < brightness.length; i++) {
+                brightness[i] = random.nextDouble();
+            }
+            for (DitherMode mode : new DitherMode[]{DitherMode.ORDERED, DitherMode.FLOYD_STEINBERG}) {
+                char[][] expected = ditherer.dither(mode, brightness, grid[0], grid[1], 1);
+                for (int numWorkers : NUM_WORKERS) {
+                    for (int repetition = 0; repetition < REPETITIONS; repetition++) {
+                        char[][] actual = ditherer.dither(mode, brightness, grid[0], grid[1], numWorkers);
+                        for (int row = 0; row < expected.length; row++) {
+                            assertArrayEquals(expected[row], actual[row], String.format(
+                                    "%s, %dx%d grid, %d workers, row %d", mode, grid[0], grid[1],
+                                    numWorkers, row));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the index of the entry of SORTED_BRIGHTNESS closest to value.
+     */
+    private static int findBestIndex(double value) {
+        int index = Arrays.binarySearch(SORTED_BRIGHTNESS, value);
+        if (index >= 0) {
+            return index;
+        }
+        int above = Math.min(-index - 1, SORTED_BRIGHTNESS.length - 1);
+        int below = Math.max(above - 1, 0);
+        return value - SORTED_BRIGHTNESS[below] <= SORTED_BRIGHTNESS[above] - value ? below : above;
+    }
+}
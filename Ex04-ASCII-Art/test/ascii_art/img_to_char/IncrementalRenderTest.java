@@ -0,0 +1,93 @@
+package ascii_art.img_to_char;
+
+import image.Image;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * differential test of the incremental mode of BrightnessImgCharMatcher: after every random addition or
+ * removal of chars, the incremental matcher must return exactly the chars of a matcher that renders from
+ * scratch.
+ */
+class IncrementalRenderTest {
+    /**
+     * string constants and magic numbers.
+     */
+    private static final String FONT = "Courier New";
+    private static final long SEED = 7;
+    private static final int STEPS_PER_WIDTH = 100;
+    private static final int[] WIDTHS = {64, 100, 128};
+    private static final int[][] SIZES = {{300, 200}, {256, 256}, {1000, 700}};
+    private static final int NUM_ASCII = 95;
+    private static final int BULK_ADD_ODDS = 40;
+    private static final List<Character> BULK_CHARS = List.of('a', 'b', 'c', '@', '#', '.');
+
+    /**
+     * renders random images with random sequences of chars added and removed (and every now and then a
+     * few chars added at once), switching the width every STEPS_PER_WIDTH steps, and compares every
+     * incremental render with a full one.
+     */
+    @Test
+    void incrementalRenderMatchesFreshRender() {
+        Random random = new Random(SEED);
+        long reassignedCells = 0;
+        long totalCells = 0;
+        for (int[] size : SIZES) {
+            Image img = randomImage(random, size[0], size[1]);
+            BrightnessImgCharMatcher incremental = new BrightnessImgCharMatcher(img, FONT);
+            incremental.setIncremental(true);
+            BrightnessImgCharMatcher fresh = new BrightnessImgCharMatcher(img, FONT);
+            TreeSet<Character> charSet = new TreeSet<>();
+            for (char c = '0'; c <= '9'; c++) {
+                charSet.add(c);
+            }
+            for (int step = 0; step < STEPS_PER_WIDTH * WIDTHS.length; step++) {
+                char c = (char) (' ' + random.nextInt(NUM_ASCII));
+                if (random.nextBoolean()) {
+                    charSet.add(c);
+                } else if (charSet.size() > 1) {
+                    charSet.remove(c);
+                }
+                if (random.nextInt(BULK_ADD_ODDS) == 0) {
+                    charSet.addAll(BULK_CHARS);
+                }
+                int width = WIDTHS[step / STEPS_PER_WIDTH];
+                Character[] chars = charSet.toArray(new Character[0]);
+                char[][] expected = fresh.chooseChars(width, chars);
+                char[][] actual = incremental.chooseChars(width, chars);
+                for (int row = 0; row < expected.length; row++) {
+                    assertArrayEquals(expected[row], actual[row], String.format(
+                            "%dx%d image, step %d, width %d, row %d, chars %s", size[0], size[1], step,
+                            width, row, Arrays.toString(chars)));
+                }
+                reassignedCells += incremental.getLastReassignedCells();
+                totalCells += (long) expected.length * expected[0].length;
+            }
+        }
+        assertTrue(reassignedCells < totalCells, "no render was incremental");
+    }
+
+    /**
+     * @return an image of the given size with a gradient and random noise.
+     */
+    private static Image randomImage(Random random, int width, int height) {
+        BufferedImage im = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int red = (x * 255 / width + y * 128 / height + random.nextInt(40)) % 256;
+                int green = (red * 3 + y) % 256;
+                int blue = (x ^ y) & 255;
+                im.setRGB(x, y, (red << 16) | (green << 8) | blue);
+            }
+        }
+        return Image.fromBufferedImage(im);
+    }
+}
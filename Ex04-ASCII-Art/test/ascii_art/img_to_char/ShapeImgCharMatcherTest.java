@@ -0,0 +1,183 @@
+package ascii_art.img_to_char;
+
+import image.CellGrid;
+import image.Image;
+import image.IntegralImage;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * differential test of ShapeImgCharMatcher: every char it chooses must be the one an exhaustive search
+ * finds, the glyph with the minimal sum of squared differences from the patch of the cell, and the
+ * smallest char among equally close glyphs. Both the path over the luminance pyramid (square cells of a
+ * power of 2 times the patch size) and the path over the summed-area table (any other cells) are checked.
+ */
+class ShapeImgCharMatcherTest {
+    /**
+     * string constants and magic numbers- the cases are {patch size, chars in a row}; on the 512x256
+     * image, 128 and 64 chars give square cells of 4 and 8 pixels, and 100 and 37 give cells of other
+     * sizes.
+     */
+    private static final String FONT = "Courier New";
+    private static final long SEED = 3;
+    private static final int WIDTH = 512;
+    private static final int HEIGHT = 256;
+    private static final int[][] CASES = {{2, 128}, {4, 128}, {8, 64}, {2, 100}, {4, 37}, {8, 100}, {8, 128}};
+    private static final int NUM_ASCII = 95;
+    private static final int GLYPH_RESOLUTION = 16;
+    private static final double MAX_RGB_VAL = 255;
+    /**
+     * a few chars, two of which (' ' and a no-break space) are drawn the same, so every blank cell is a tie.
+     */
+    private static final Character[] FEW_CHARS = {'\u00a0', ' ', '.', '/', '\\', '|', '-', '#', '@'};
+
+    /**
+     * checks the chars of every case, with all printable ASCII chars and with FEW_CHARS.
+     */
+    @Test
+    void chooseCharsMatchesExhaustiveSearch() {
+        Image img = randomImage(new Random(SEED));
+        Character[] ascii = new Character[NUM_ASCII];
+        for (int i = 0; i < NUM_ASCII; i++) {
+            ascii[i] = (char) (' ' + i);
+        }
+        int pyramidCases = 0;
+        for (int[] testCase : CASES) {
+            int patchSize = testCase[0];
+            int numCharsInRow = testCase[1];
+            CellGrid grid = CellGrid.withAspectRatio(img.getWidth(), img.getHeight(), numCharsInRow,
+                    BrightnessImgCharMatcher.DEFAULT_ASPECT_RATIO);
+            int cellSize = grid.getSquareCellSize();
+            if (cellSize >= patchSize && cellSize % patchSize == 0 && Integer.bitCount(cellSize / patchSize) == 1) {
+                pyramidCases++;
+            }
+            for (Character[] charSet : new Character[][]{ascii, FEW_CHARS}) {
+                ShapeImgCharMatcher matcher = new ShapeImgCharMatcher(img, FONT, patchSize);
+                char[][] actual = matcher.chooseChars(numCharsInRow, charSet);
+                char[][] expected = exhaustiveSearch(img, grid, patchSize, charSet);
+                for (int row = 0; row < expected.length; row++) {
+                    assertEquals(new String(expected[row]), new String(actual[row]), String.format(
+                            "patch %d, %d chars in a row, %d chars, row %d", patchSize, numCharsInRow,
+                            charSet.length, row));
+                }
+            }
+        }
+        assertEquals(3, pyramidCases, "the cases don't cover both paths");
+    }
+
+    /**
+     * matches every cell with every glyph.
+     *
+     * @return the closest char to every cell, the smallest one among equally close chars.
+     */
+    private static char[][] exhaustiveSearch(Image img, CellGrid grid, int patchSize, Character[] charSet) {
+        TreeSet<Character> sorted = new TreeSet<>();
+        for (Character c : charSet) {
+            sorted.add(c);
+        }
+        char[] chars = new char[sorted.size()];
+        int numChars = 0;
+        for (Character c : sorted) {
+            chars[numChars++] = c;
+        }
+        float[][] glyphs = glyphPatches(chars, patchSize);
+        IntegralImage integralImage = img.getIntegralImage();
+        float[] patch = new float[patchSize * patchSize];
+        char[][] result = new char[grid.getNumRows()][grid.getNumCols()];
+        for (int row = 0; row < grid.getNumRows(); row++) {
+            for (int col = 0; col < grid.getNumCols(); col++) {
+                fillPatch(patch, patchSize, integralImage, grid.getColStart(col), grid.getRowStart(row),
+                        grid.getCellWidth(col), grid.getCellHeight(row));
+                int best = 0;
+                float bestDistance = Float.POSITIVE_INFINITY;
+                //chars are in increasing order, so only a strictly closer glyph replaces the best one
+                for (int i = 0; i < numChars; i++) {
+                    float distance = 0;
+                    for (int j = 0; j < patch.length; j++) {
+                        float diff = patch[j] - glyphs[i][j];
+                        distance += diff * diff;
+                    }
+                    if (distance < bestDistance) {
+                        best = i;
+                        bestDistance = distance;
+                    }
+                }
+                result[row][col] = chars[best];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the patch of every char: the part of each block of its 16x16 glyph that is set, normalized
+     * so the means of the patches range from 0 to 1.
+     */
+    private static float[][] glyphPatches(char[] chars, int patchSize) {
+        int patchLength = patchSize * patchSize;
+        int blockSize = GLYPH_RESOLUTION / patchSize;
+        double[][] patches = new double[chars.length][patchLength];
+        double minMean = Double.POSITIVE_INFINITY, maxMean = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < chars.length; i++) {
+            long[] glyph = CharRenderer.getPackedImg(chars[i], GLYPH_RESOLUTION, FONT);
+            for (int y = 0; y < GLYPH_RESOLUTION; y++) {
+                for (int x = 0; x < GLYPH_RESOLUTION; x++) {
+                    if (CharRenderer.isSet(glyph, y * GLYPH_RESOLUTION + x)) {
+                        patches[i][(y / blockSize) * patchSize + x / blockSize]++;
+                    }
+                }
+            }
+            double mean = 0;
+            for (int j = 0; j < patchLength; j++) {
+                patches[i][j] /= blockSize * blockSize;
+                mean += patches[i][j] / patchLength;
+            }
+            minMean = Math.min(minMean, mean);
+            maxMean = Math.max(maxMean, mean);
+        }
+        double range = maxMean > minMean ? maxMean - minMean : 1;
+        float[][] glyphs = new float[chars.length][patchLength];
+        for (int i = 0; i < chars.length; i++) {
+            for (int j = 0; j < patchLength; j++) {
+                glyphs[i][j] = (float) ((patches[i][j] - minMean) / range);
+            }
+        }
+        return glyphs;
+    }
+
+    /**
+     * fills the patch of a cell with the average brightness (0-1) of each of its blocks.
+     */
+    private static void fillPatch(float[] patch, int patchSize, IntegralImage integralImage, int x, int y,
+                                  int width, int height) {
+        for (int row = 0; row < patchSize; row++) {
+            int top = y + row * height / patchSize;
+            int bottom = Math.max(y + (row + 1) * height / patchSize, top + 1);
+            for (int col = 0; col < patchSize; col++) {
+                int left = x + col * width / patchSize;
+                int right = Math.max(x + (col + 1) * width / patchSize, left + 1);
+                patch[row * patchSize + col] = (float) (integralImage.getBlockAverage(left, top, right - left,
+                        bottom - top) / MAX_RGB_VAL);
+            }
+        }
+    }
+
+    /**
+     * @return an image of diagonal stripes with random noise, and a white band at the top.
+     */
+    private static Image randomImage(Random random) {
+        BufferedImage im = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int rgb = y < HEIGHT / 8 ? 0xFFFFFF :
+                        ((x / 7 + y / 5) % 3 == 0 ? 0 : 0xFFFFFF) ^ (random.nextInt(40) * 0x10101);
+                im.setRGB(x, y, rgb);
+            }
+        }
+        return Image.fromBufferedImage(im);
+    }
+}
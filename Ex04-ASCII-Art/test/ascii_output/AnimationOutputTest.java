@@ -0,0 +1,245 @@
+package ascii_output;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * replays the frames written by the animation outputs- the runs of the HTML file and the cursor moves of
+ * the console- and checks that every frame is rebuilt, and that the console draws a frame whole once more
+ * than half of its cells changed.
+ */
+class AnimationOutputTest {
+    /**
+     * magic numbers- the seed, the number of frames, the size of the frames, a rate at which writeFrame
+     * doesn't sleep, the chars used (the HTML ones need escaping), and the layout of the console.
+     */
+    private static final long SEED = 11;
+    private static final int FRAMES = 60;
+    private static final int ROWS = 12;
+    private static final int COLS = 20;
+    private static final double FPS = 1e6;
+    private static final String HTML_CHARS = " .#\"\\<>&";
+    private static final String CONSOLE_CHARS = " .:-=+*#%@";
+    private static final int COLUMNS_PER_CHAR = 2;
+    private static final char ESCAPE = '\u001b';
+    private static final Pattern HTML_RUN = Pattern.compile("\\[(\\d+),\"((?:[^\"\\\\]|\\\\.)*)\"]");
+    private static final Pattern HTML_ESCAPE = Pattern.compile("\\\\(?:u([0-9a-fA-F]{4})|(.))");
+    private static final String FRAMES_START = "var frames = [";
+    private static final String FRAMES_END = "];";
+
+    /**
+     * writes random frames to an HTML file and replays its runs the way its script does.
+     */
+    @Test
+    void htmlDeltasRebuildEveryFrame(@TempDir Path dir) throws IOException {
+        Random random = new Random(SEED);
+        List<char[][]> frames = randomFrames(random, HTML_CHARS);
+        Path file = dir.resolve("animation.html");
+        HtmlAnimationOutput output = new HtmlAnimationOutput(file.toString(), "Courier New");
+        output.begin(COLS, ROWS, FPS);
+        for (char[][] frame : frames) {
+            output.writeFrame(frame);
+        }
+        output.end();
+
+        List<String> lines = Files.readAllLines(file, Charset.defaultCharset());
+        int first = lines.indexOf(FRAMES_START) + 1;
+        assertEquals(FRAMES_END, lines.get(first + frames.size()));
+        char[] cells = new char[ROWS * COLS];
+        for (int i = 0; i < frames.size(); i++) {
+            Matcher run = HTML_RUN.matcher(lines.get(first + i));
+            while (run.find()) {
+                String text = unescape(run.group(2));
+                text.getChars(0, text.length(), cells, Integer.parseInt(run.group(1)));
+            }
+            for (int row = 0; row < ROWS; row++) {
+                char[] shown = new char[COLS];
+                System.arraycopy(cells, row * COLS, shown, 0, COLS);
+                assertArrayEquals(frames.get(i)[row], shown, "frame " + i + ", row " + row);
+            }
+        }
+    }
+
+    /**
+     * writes random frames to a console and replays what it got on an emulated terminal.
+     */
+    @Test
+    void consoleDeltasRebuildEveryFrame() {
+        Random random = new Random(SEED);
+        List<char[][]> frames = randomFrames(random, CONSOLE_CHARS);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ConsoleAnimationOutput output = new ConsoleAnimationOutput(Channels.newChannel(bytes));
+        Terminal terminal = new Terminal();
+        output.begin(COLS, ROWS, FPS);
+        for (int i = 0; i < frames.size(); i++) {
+            output.writeFrame(frames.get(i));
+            terminal.feed(bytes);
+            for (int row = 0; row < ROWS; row++) {
+                assertArrayEquals(frames.get(i)[row], terminal.getRow(row), "frame " + i + ", row " + row);
+            }
+        }
+        output.end();
+        assertEquals(frames.size(), output.getFullFrames() + output.getDeltaFrames());
+        assertEquals(bytes.size(), output.getBytesWritten());
+    }
+
+    /**
+     * a frame in which exactly half of the cells changed is drawn as a delta, and one with a single cell
+     * more is drawn whole.
+     */
+    @Test
+    void consoleRedrawsWholeFrameAboveHalfChanged() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ConsoleAnimationOutput output = new ConsoleAnimationOutput(Channels.newChannel(bytes));
+        Terminal terminal = new Terminal();
+        output.begin(COLS, ROWS, FPS);
+        char[][] frame = new char[ROWS][COLS];
+        for (char[] row : frame) {
+            Arrays.fill(row, ' ');
+        }
+        output.writeFrame(frame);
+        assertEquals(1, output.getFullFrames());
+
+        char[][] half = withChanged(frame, ROWS * COLS / 2);
+        output.writeFrame(half);
+        assertEquals(1, output.getFullFrames());
+        assertEquals(1, output.getDeltaFrames());
+
+        output.writeFrame(frame);
+        char[][] overHalf = withChanged(frame, ROWS * COLS / 2 + 1);
+        output.writeFrame(overHalf);
+        assertEquals(2, output.getFullFrames());
+        assertEquals(2, output.getDeltaFrames());
+        terminal.feed(bytes);
+        for (int row = 0; row < ROWS; row++) {
+            assertArrayEquals(overHalf[row], terminal.getRow(row), "row " + row);
+        }
+
+        output.writeFrame(new char[ROWS + 1][COLS]);
+        assertEquals(3, output.getFullFrames());
+    }
+
+    /**
+     * @return FRAMES random frames, each one changed from the one before it by a random part of its cells.
+     */
+    private static List<char[][]> randomFrames(Random random, String chars) {
+        List<char[][]> frames = new ArrayList<>();
+        char[][] frame = FrameDiffTest.randomFrame(random, chars, ROWS, COLS);
+        for (int i = 0; i < FRAMES; i++) {
+            frames.add(frame);
+            frame = FrameDiffTest.change(random, chars, frame, random.nextDouble());
+        }
+        return frames;
+    }
+
+    /**
+     * @return a copy of frame in which the first count cells, row after row, are '#'.
+     */
+    private static char[][] withChanged(char[][] frame, int count) {
+        char[][] changed = FrameDiffTest.copy(frame);
+        for (int i = 0; i < count; i++) {
+            changed[i / COLS][i % COLS] = '#';
+        }
+        return changed;
+    }
+
+    /**
+     * @return the text of a JavaScript string literal written by HtmlAnimationOutput.
+     */
+    private static String unescape(String literal) {
+        Matcher escape = HTML_ESCAPE.matcher(literal);
+        StringBuilder text = new StringBuilder();
+        while (escape.find()) {
+            String c = escape.group(1) == null ? escape.group(2) :
+                    String.valueOf((char) Integer.parseInt(escape.group(1), 16));
+            escape.appendReplacement(text, Matcher.quoteReplacement(c));
+        }
+        escape.appendTail(text);
+        return text.toString();
+    }
+
+    /**
+     * a terminal that understands the escape codes the console output writes: clearing the screen, moving
+     * the cursor home or to a cell, and new lines.
+     */
+    private static class Terminal {
+        /**
+         * the screen, with room for the cursor below the frame, the cursor and the number of bytes read.
+         */
+        private final char[][] screen = new char[ROWS + 1][COLS * COLUMNS_PER_CHAR];
+        private int row;
+        private int col;
+        private int read;
+
+        /**
+         * applies the bytes written since the last call.
+         */
+        void feed(ByteArrayOutputStream bytes) {
+            String text = new String(bytes.toByteArray(), read, bytes.size() - read, Charset.defaultCharset());
+            read = bytes.size();
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == ESCAPE) {
+                    int end = i + 2;
+                    while (!Character.isLetter(text.charAt(end))) {
+                        end++;
+                    }
+                    control(text.substring(i + 2, end), text.charAt(end));
+                    i = end;
+                } else if (c == '\r') {
+                    col = 0;
+                } else if (c == '\n') {
+                    row++;
+                    col = 0;
+                } else {
+                    screen[row][col++] = c;
+                }
+            }
+        }
+
+        /**
+         * applies an escape code "ESC [ arguments command".
+         */
+        private void control(String arguments, char command) {
+            if (command == 'J') {
+                for (char[] line : screen) {
+                    Arrays.fill(line, ' ');
+                }
+            } else if (arguments.isEmpty()) {
+                row = 0;
+                col = 0;
+            } else {
+                String[] cell = arguments.split(";");
+                row = Integer.parseInt(cell[0]) - 1;
+                col = Integer.parseInt(cell[1]) - 1;
+            }
+        }
+
+        /**
+         * @return the chars shown in a row of the frame.
+         */
+        char[] getRow(int frameRow) {
+            char[] chars = new char[COLS];
+            for (int i = 0; i < COLS; i++) {
+                chars[i] = screen[frameRow][i * COLUMNS_PER_CHAR];
+            }
+            return chars;
+        }
+    }
+}
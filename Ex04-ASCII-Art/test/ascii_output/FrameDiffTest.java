@@ -0,0 +1,156 @@
+package ascii_output;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * checks FrameDiff: applying the changed runs to the previous frame gives the current one, the runs
+ * start and end on changed cells, and gaps are merged up to MAX_GAP cells and no further.
+ */
+class FrameDiffTest {
+    /**
+     * magic numbers- the seed, the number of random frame pairs, the largest frame and the chars used.
+     */
+    private static final long SEED = 5;
+    private static final int CASES = 500;
+    private static final int MAX_SIZE = 40;
+    private static final String CHARS = " .:-=+*#%@";
+
+    /**
+     * replays the runs of random pairs of frames, with changes of every density.
+     */
+    @Test
+    void replayingRunsRebuildsCurrentFrame() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < CASES; i++) {
+            int rows = 1 + random.nextInt(MAX_SIZE);
+            int cols = 1 + random.nextInt(MAX_SIZE);
+            char[][] previous = randomFrame(random, CHARS, rows, cols);
+            char[][] current = change(random, CHARS, previous, random.nextDouble());
+            char[][] replayed = copy(previous);
+            int[] lastEnd = new int[rows];
+            Arrays.fill(lastEnd, -1);
+            FrameDiff.forEachChangedRun(previous, current, (row, from, to) -> {
+                assertTrue(from < to, "empty run");
+                assertTrue(from > lastEnd[row], "runs out of order or not separated");
+                assertTrue(lastEnd[row] < 0 || from - lastEnd[row] > FrameDiff.MAX_GAP,
+                        "a gap of at most MAX_GAP wasn't merged");
+                assertTrue(previous[row][from] != current[row][from], "run starts on an unchanged cell");
+                assertTrue(previous[row][to - 1] != current[row][to - 1], "run ends on an unchanged cell");
+                System.arraycopy(current[row], from, replayed[row], from, to - from);
+                lastEnd[row] = to;
+            });
+            for (int row = 0; row < rows; row++) {
+                assertArrayEquals(current[row], replayed[row], "case " + i + ", row " + row);
+            }
+            assertEquals(countChanged(previous, current), FrameDiff.countChanged(previous, current));
+        }
+    }
+
+    /**
+     * two changed cells with exactly MAX_GAP unchanged cells between them are one run.
+     */
+    @Test
+    void gapOfMaxGapIsMerged() {
+        assertEquals(List.of(List.of(0, 1, FrameDiff.MAX_GAP + 3)), runsAround(FrameDiff.MAX_GAP));
+    }
+
+    /**
+     * two changed cells with MAX_GAP + 1 unchanged cells between them are two runs.
+     */
+    @Test
+    void gapOfMaxGapPlusOneIsSplit() {
+        assertEquals(List.of(List.of(0, 1, 2), List.of(0, FrameDiff.MAX_GAP + 3, FrameDiff.MAX_GAP + 4)),
+                runsAround(FrameDiff.MAX_GAP + 1));
+    }
+
+    /**
+     * frames of different sizes, or no previous frame, aren't the same size.
+     */
+    @Test
+    void sameSizeComparesEveryRow() {
+        char[][] frame = {{'a', 'b'}, {'c', 'd'}};
+        assertTrue(FrameDiff.sameSize(frame, copy(frame)));
+        assertFalse(FrameDiff.sameSize(null, frame));
+        assertFalse(FrameDiff.sameSize(new char[][]{{'a', 'b'}}, frame));
+        assertFalse(FrameDiff.sameSize(new char[][]{{'a', 'b'}, {'c'}}, frame));
+    }
+
+    /**
+     * @param gap the number of unchanged cells between the two changed ones.
+     * @return the runs (row, from, to) of a row where cells 1 and gap + 2 changed.
+     */
+    private static List<List<Integer>> runsAround(int gap) {
+        char[][] previous = {new char[gap + 5]};
+        Arrays.fill(previous[0], ' ');
+        char[][] current = copy(previous);
+        current[0][1] = '#';
+        current[0][gap + 2] = '#';
+        List<List<Integer>> runs = new ArrayList<>();
+        FrameDiff.forEachChangedRun(previous, current, (row, from, to) -> runs.add(List.of(row, from, to)));
+        return runs;
+    }
+
+    /**
+     * @return a frame of random chars of the given ones.
+     */
+    static char[][] randomFrame(Random random, String chars, int rows, int cols) {
+        char[][] frame = new char[rows][cols];
+        for (char[] row : frame) {
+            for (int col = 0; col < cols; col++) {
+                row[col] = chars.charAt(random.nextInt(chars.length()));
+            }
+        }
+        return frame;
+    }
+
+    /**
+     * @return a copy of frame where each cell changed, with the given probability, to another of the given
+     * chars.
+     */
+    static char[][] change(Random random, String chars, char[][] frame, double probability) {
+        char[][] changed = copy(frame);
+        for (char[] row : changed) {
+            for (int col = 0; col < row.length; col++) {
+                if (random.nextDouble() < probability) {
+                    row[col] = chars.charAt((chars.indexOf(row[col]) + 1 + random.nextInt(chars.length() - 1)) %
+                            chars.length());
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return a deep copy of frame.
+     */
+    static char[][] copy(char[][] frame) {
+        char[][] copy = new char[frame.length][];
+        for (int row = 0; row < frame.length; row++) {
+            copy[row] = frame[row].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * @return the number of cells that differ, counted independently of FrameDiff.
+     */
+    private static int countChanged(char[][] previous, char[][] current) {
+        int changed = 0;
+        for (int row = 0; row < current.length; row++) {
+            for (int col = 0; col < current[row].length; col++) {
+                changed += previous[row][col] == current[row][col] ? 0 : 1;
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,69 @@
+package image;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * checks that the kernels selected for this process give exactly the values of the scalar loops.
+ * Without the vector profile both are the scalar kernels. mvn -Pvector test runs the tests with
+ * jdk.incubator.vector, so the SIMD kernels, including their tails, are compared with the scalar ones.
+ */
+class LumaKernelsTest {
+    /**
+     * magic numbers- the seed, the number of random cases, the largest length and the largest value of
+     * a scaled luminance.
+     */
+    private static final long SEED = 1;
+    private static final int CASES = 2000;
+    private static final int MAX_LENGTH = 100;
+    private static final int MAX_LUMINANCE = 2550000;
+    private static final int MAX_OFFSET = 3;
+
+    /**
+     * converts random pixel arrays of every length up to MAX_LENGTH with both kernels.
+     */
+    @Test
+    void toLuminanceMatchesScalar() {
+        Random random = new Random(SEED);
+        LumaKernels scalar = new ScalarLumaKernels();
+        for (int i = 0; i < CASES; i++) {
+            int length = random.nextInt(MAX_LENGTH);
+            int[] pixels = new int[length + MAX_OFFSET];
+            for (int j = 0; j < pixels.length; j++) {
+                pixels[j] = random.nextInt();
+            }
+            int[] expected = new int[length];
+            int[] actual = new int[length];
+            scalar.toLuminance(pixels, expected, length);
+            LumaKernels.SELECTED.toLuminance(pixels, actual, length);
+            assertArrayEquals(expected, actual, LumaKernels.SELECTED.getName() + ", length " + length);
+        }
+    }
+
+    /**
+     * sums random rows of luminance, at random offsets, with both kernels.
+     */
+    @Test
+    void sumBlocksMatchesScalar() {
+        Random random = new Random(SEED);
+        LumaKernels scalar = new ScalarLumaKernels();
+        for (int i = 0; i < CASES; i++) {
+            int numSums = random.nextInt(MAX_LENGTH / 2);
+            int[] values = new int[4 * numSums + 4 * MAX_OFFSET];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = random.nextInt(MAX_LUMINANCE + 1);
+            }
+            int top = random.nextInt(MAX_OFFSET);
+            int bottom = top + 2 * numSums + random.nextInt(MAX_OFFSET);
+            int out = random.nextInt(MAX_OFFSET);
+            int[] expected = new int[numSums + MAX_OFFSET];
+            int[] actual = new int[numSums + MAX_OFFSET];
+            scalar.sumBlocks(values, top, bottom, expected, out, numSums);
+            LumaKernels.SELECTED.sumBlocks(values, top, bottom, actual, out, numSums);
+            assertArrayEquals(expected, actual, LumaKernels.SELECTED.getName() + ", " + numSums + " sums");
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package image;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * checks that every cell of every level of the luminance pyramid has exactly the sum and the average the
+ * summed-area table gives for the same block, so reading square cells from the pyramid doesn't change a
+ * single char.
+ */
+class LuminancePyramidTest {
+    /**
+     * magic numbers- the seed and the sizes of the random images, including padded and tiny ones.
+     */
+    private static final long SEED = 3;
+    private static final int[][] SIZES = {{1, 1}, {3, 5}, {100, 37}, {640, 480}, {129, 2}};
+
+    /**
+     * compares the pyramid with the summed-area table on random images.
+     */
+    @Test
+    void pyramidMatchesIntegralImage() {
+        Random random = new Random(SEED);
+        for (int[] size : SIZES) {
+            BufferedImage im = new BufferedImage(size[0], size[1], BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < size[1]; y++) {
+                for (int x = 0; x < size[0]; x++) {
+                    im.setRGB(x, y, random.nextInt());
+                }
+            }
+            Image img = Image.fromBufferedImage(im);
+            IntegralImage integralImage = img.getIntegralImage();
+            LuminancePyramid pyramid = img.getLuminancePyramid();
+            for (int level = 0; level < pyramid.getNumLevels(); level++) {
+                int cellSize = 1 << level;
+                for (int y = 0; y < img.getHeight() / cellSize; y++) {
+                    for (int x = 0; x < img.getWidth() / cellSize; x++) {
+                        String cell = String.format("%dx%d image, level %d, cell (%d,%d)", size[0], size[1],
+                                level, x, y);
+                        assertEquals(integralImage.getScaledBlockSum(x * cellSize, y * cellSize, cellSize,
+                                cellSize), pyramid.getScaledSum(level, x, y), cell);
+                        assertEquals(Double.doubleToLongBits(integralImage.getBlockAverage(x * cellSize,
+                                        y * cellSize, cellSize, cellSize)),
+                                Double.doubleToLongBits(pyramid.getAverage(level, x, y)), cell);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package image;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A package-private class of the package image.
+ * the LumaKernels written with the Vector API (jdk.incubator.vector), processing a whole SIMD register
+ * of pixels per step (8 ints with AVX2). It is only compiled by the vector Maven profile, and only
+ * loaded when the JVM runs with --add-modules jdk.incubator.vector; LumaKernels falls back to
+ * ScalarLumaKernels otherwise. The remainder of every loop that doesn't fill a register is done one
+ * element at a time.
+ */
+final class VectorLumaKernels implements LumaKernels {
+    /**
+     * private static final fields- the name of these kernels, the species of the int vectors (and of
+     * the vectors of half their size, holding one sum per pair of ints), the channel layout of a packed
+     * pixel and the Rec. 709 weights (see LuminancePlane).
+     */
+    private static final String NAME = "vector";
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> HALF_SPECIES =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(SPECIES.vectorBitSize() / 2));
+    private static final int RED_SHIFT = 16;
+    private static final int GREEN_SHIFT = 8;
+    private static final int CHANNEL_MASK = 0xFF;
+    private static final int RED_WEIGHT = 2126;
+    private static final int GREEN_WEIGHT = 7152;
+    private static final int BLUE_WEIGHT = 722;
+    private static final long LOW_INT_MASK = 0xFFFFFFFFL;
+    private static final int INT_BITS = Integer.SIZE;
+
+    /**
+     * converts packed ARGB pixels to their scaled luminance, a register of pixels at a time.
+     *
+     * @param pixels    the packed pixels.
+     * @param luminance the array to write the luminance of each pixel to.
+     * @param length    the number of pixels to convert, from index 0.
+     */
+    @Override
+    public void toLuminance(int[] pixels, int[] luminance, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            IntVector pixel = IntVector.fromArray(SPECIES, pixels, i);
+            IntVector red = pixel.lanewise(VectorOperators.LSHR, RED_SHIFT).and(CHANNEL_MASK);
+            IntVector green = pixel.lanewise(VectorOperators.LSHR, GREEN_SHIFT).and(CHANNEL_MASK);
+            IntVector blue = pixel.and(CHANNEL_MASK);
+            red.mul(RED_WEIGHT).add(green.mul(GREEN_WEIGHT)).add(blue.mul(BLUE_WEIGHT)).intoArray(luminance, i);
+        }
+        for (; i < length; i++) {
+            luminance[i] = LuminancePlane.toLuminance(pixels[i]);
+        }
+    }
+
+    /**
+     * sums the 2x2 blocks of two adjacent rows. A register of each row is added, and then every pair of
+     * neighbouring ints is added by reading the register as longs and adding the two halves of each.
+     *
+     * @param values  the values of both rows.
+     * @param top     the index of the first value of the upper row.
+     * @param bottom  the index of the first value of the lower row.
+     * @param sums    the array to write the sums to.
+     * @param out     the index of the first sum.
+     * @param numSums the number of blocks to sum.
+     */
+    @Override
+    public void sumBlocks(int[] values, int top, int bottom, int[] sums, int out, int numSums) {
+        int i = 0;
+        for (int bound = HALF_SPECIES.loopBound(numSums); i < bound; i += HALF_SPECIES.length()) {
+            IntVector columns = IntVector.fromArray(SPECIES, values, top + 2 * i)
+                    .add(IntVector.fromArray(SPECIES, values, bottom + 2 * i));
+            LongVector pairs = columns.reinterpretAsLongs();
+            LongVector pairSums = pairs.and(LOW_INT_MASK).add(pairs.lanewise(VectorOperators.LSHR, INT_BITS));
+            pairSums.convertShape(VectorOperators.L2I, HALF_SPECIES, 0).reinterpretAsInts().intoArray(sums, out + i);
+        }
+        for (; i < numSums; i++) {
+            sums[out + i] = values[top + 2 * i] + values[top + 2 * i + 1] + values[bottom + 2 * i] +
+                    values[bottom + 2 * i + 1];
+        }
+    }
+
+    /**
+     * @return the name of these kernels.
+     */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}